@@ -17,4 +17,17 @@ public interface OpponentAgent {
      * @return the selected move or {@code null} if none can be performed
      */
     Move chooseMove(Player self, Player enemy, List<TurnRecord> history);
+
+    /**
+     * Lets the agent think about the current position in the background
+     * until its next move is requested. Agents that cannot ponder ignore it.
+     */
+    default void startPondering(Player self, Player enemy, List<TurnRecord> history) {
+    }
+
+    /**
+     * Stops any background thinking started by {@link #startPondering}.
+     */
+    default void stopPondering() {
+    }
 }
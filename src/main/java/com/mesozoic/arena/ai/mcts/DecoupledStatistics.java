@@ -0,0 +1,161 @@
+package com.mesozoic.arena.ai.mcts;
+
+import com.mesozoic.arena.model.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Separate move statistics for both players of a node searched with
+ * decoupled UCT.
+ * <p>
+ * Rounds are simultaneous, so instead of fixing one sampled opponent reply
+ * per move each player picks its own move with UCB1 over its own statistics,
+ * and the joint action selects a child that is created the first time it is
+ * chosen. Player two maximises the rollout result, player one minimises it.
+ * On a tree shared by several threads a pending descent through a joint
+ * action counts for both moves as a visit with a losing result for the
+ * player who chose it, like the virtual loss of {@link NodeStatistics}.
+ * All access is synchronised on this object.
+ */
+final class DecoupledStatistics {
+    private final List<Move> selfMoves;
+    private final List<Move> opponentMoves;
+    private final int[] selfVisits;
+    private final int[] selfWins;
+    private final double[] selfScores;
+    private final int[] opponentVisits;
+    private final double[] opponentScores;
+    private final int[] selfPending;
+    private final int[] opponentPending;
+    private final MCTSNode[] children;
+    private int visits;
+    private int pending;
+
+    DecoupledStatistics(List<Move> selfMoves, List<Move> opponentMoves) {
+        this.selfMoves = selfMoves;
+        this.opponentMoves = opponentMoves;
+        this.selfVisits = new int[selfMoves.size()];
+        this.selfWins = new int[selfMoves.size()];
+        this.selfScores = new double[selfMoves.size()];
+        int replies = Math.max(1, opponentMoves.size());
+        this.opponentVisits = new int[replies];
+        this.opponentScores = new double[replies];
+        this.selfPending = new int[selfMoves.size()];
+        this.opponentPending = new int[replies];
+        this.children = new MCTSNode[selfMoves.size() * replies];
+    }
+
+    boolean isEmpty() {
+        return selfMoves.isEmpty();
+    }
+
+    Move selfMove(int index) {
+        return selfMoves.get(index);
+    }
+
+    Move opponentMove(int index) {
+        return opponentMoves.isEmpty() ? null : opponentMoves.get(index);
+    }
+
+    synchronized int chooseSelf(Random random, double epsilon, double exploration) {
+        return choose(selfVisits, selfPending, selfScores, 1.0, random, epsilon, exploration);
+    }
+
+    synchronized int chooseOpponent(Random random, double epsilon, double exploration) {
+        return choose(opponentVisits, opponentPending, opponentScores, -1.0, random, epsilon,
+                exploration);
+    }
+
+    /**
+     * Picks a move by UCB1 from the player's point of view given by
+     * {@code sign}, trying unvisited moves first. Pending descents count as
+     * visits scoring {@link NodeStatistics#VIRTUAL_LOSS} for that player.
+     */
+    private int choose(int[] counts, int[] pendings, double[] scores, double sign, Random random,
+            double epsilon, double exploration) {
+        if (counts.length == 1) {
+            return 0;
+        }
+        if (random != null && epsilon > 0 && random.nextDouble() < epsilon) {
+            return random.nextInt(counts.length);
+        }
+        int unvisited = 0;
+        for (int index = 0; index < counts.length; index++) {
+            if (counts[index] + pendings[index] == 0) {
+                unvisited++;
+            }
+        }
+        if (unvisited > 0) {
+            int pick = random == null ? 0 : random.nextInt(unvisited);
+            for (int index = 0; index < counts.length; index++) {
+                if (counts[index] + pendings[index] == 0 && pick-- == 0) {
+                    return index;
+                }
+            }
+        }
+        int best = 0;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        double logTotal = Math.log(visits + pending + 1);
+        for (int index = 0; index < counts.length; index++) {
+            int count = counts[index] + pendings[index];
+            double score = sign * scores[index] + pendings[index] * NodeStatistics.VIRTUAL_LOSS;
+            double value = score / count + exploration * Math.sqrt(logTotal / count);
+            if (value > bestValue) {
+                bestValue = value;
+                best = index;
+            }
+        }
+        return best;
+    }
+
+    synchronized MCTSNode child(int self, int opponent) {
+        return children[self * opponentVisits.length + opponent];
+    }
+
+    synchronized void setChild(int self, int opponent, MCTSNode child) {
+        children[self * opponentVisits.length + opponent] = child;
+    }
+
+    /**
+     * Returns the statistics of player two's moves.
+     */
+    synchronized List<MoveStatistics> selfStatistics() {
+        List<MoveStatistics> statistics = new ArrayList<>(selfMoves.size());
+        for (int index = 0; index < selfMoves.size(); index++) {
+            statistics.add(new MoveStatistics(selfMoves.get(index), selfVisits[index],
+                    selfWins[index], selfScores[index]));
+        }
+        return statistics;
+    }
+
+    /**
+     * Marks a pending descent through the joint action that leads to a child.
+     */
+    synchronized void addVirtualLoss(int self, int opponent) {
+        pending++;
+        selfPending[self]++;
+        opponentPending[opponent]++;
+    }
+
+    synchronized void removeVirtualLoss(int self, int opponent) {
+        pending--;
+        selfPending[self]--;
+        opponentPending[opponent]--;
+    }
+
+    /**
+     * Records a result for the joint action that led to a child.
+     */
+    synchronized void record(int self, int opponent, double result) {
+        visits++;
+        selfVisits[self]++;
+        selfScores[self] += result;
+        if (result > 0) {
+            selfWins[self]++;
+        }
+        opponentVisits[opponent]++;
+        opponentScores[opponent] += result;
+    }
+}
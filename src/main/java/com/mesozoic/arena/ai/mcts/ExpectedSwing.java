@@ -0,0 +1,234 @@
+package com.mesozoic.arena.ai.mcts;
+
+import com.mesozoic.arena.engine.AbilityEffects;
+import com.mesozoic.arena.engine.AilmentEffects;
+import com.mesozoic.arena.engine.DamageCalculator;
+import com.mesozoic.arena.engine.MoveEffects;
+import com.mesozoic.arena.model.Ability;
+import com.mesozoic.arena.model.AbilityType;
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.MoveEffect;
+import com.mesozoic.arena.model.Player;
+import com.mesozoic.arena.model.SwitchMove;
+
+import java.util.List;
+
+/**
+ * Closed-form evaluation of joint actions for the rollout policy. Instead of
+ * resolving every pair of moves on the state, each pair is scored by the
+ * expected health swing it produces, read from the state without changing
+ * or copying it.
+ * <p>
+ * A hit deals {@link DamageCalculator#calculateIncoming} and lands with the
+ * move's accuracy after ability modifiers, halved for the first attack on an
+ * unused Camouflage. Turn order follows the battle: priority, then speed,
+ * then the side with less total health. A Brace only blocks the first hit
+ * of the slower side, and the slower side only acts if its dinosaur survives
+ * the first one. Switching replaces the defender and gives up the attack.
+ * Heals, drain and recoil are counted; stage changes, ailments and
+ * persistent effects are not.
+ */
+final class ExpectedSwing {
+    private static final double CAMOUFLAGE_MISS = 0.5;
+
+    private ExpectedSwing() {
+    }
+
+    /**
+     * Returns the index of the maximizing side's move whose worst expected
+     * swing over the minimizing side's moves is largest, keeping the first on
+     * ties, or -1 if there are no moves.
+     */
+    static int bestIndex(GameState state, boolean forPlayerOne, List<Move> maxMoves,
+            List<Move> minMoves) {
+        int bestIndex = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int maxIndex = 0; maxIndex < maxMoves.size(); maxIndex++) {
+            Move maxMove = maxMoves.get(maxIndex);
+            double worstValue = Double.POSITIVE_INFINITY;
+            for (int minIndex = 0; minIndex < minMoves.size() && worstValue > bestValue; minIndex++) {
+                Move minMove = minMoves.get(minIndex);
+                double value = forPlayerOne
+                        ? swing(state, maxMove, minMove)
+                        : -swing(state, minMove, maxMove);
+                if (value < worstValue) {
+                    worstValue = value;
+                }
+            }
+            if (worstValue > bestValue) {
+                bestValue = worstValue;
+                bestIndex = maxIndex;
+            }
+        }
+        return bestIndex;
+    }
+
+    /**
+     * Returns the expected health player one gains on player two when the
+     * given moves are played this round.
+     */
+    static double swing(GameState state, Move playerOneMove, Move playerTwoMove) {
+        Player playerOne = state.getPlayerOne();
+        Player playerTwo = state.getPlayerTwo();
+        Dinosaur dinoOne = activeAfter(playerOne, playerOneMove);
+        Dinosaur dinoTwo = activeAfter(playerTwo, playerTwoMove);
+        if (dinoOne == null || dinoTwo == null) {
+            return 0.0;
+        }
+        Move moveOne = playerOneMove instanceof SwitchMove ? null : playerOneMove;
+        Move moveTwo = playerTwoMove instanceof SwitchMove ? null : playerTwoMove;
+
+        if (movesFirst(playerOne, dinoOne, moveOne, playerTwo, dinoTwo, moveTwo)) {
+            boolean braced = MoveEffects.hasBraceEffect(moveOne, state.lastActionWasBrace(playerOne));
+            return exchange(playerOne, dinoOne, moveOne, playerTwo, dinoTwo, moveTwo, braced);
+        }
+        boolean braced = MoveEffects.hasBraceEffect(moveTwo, state.lastActionWasBrace(playerTwo));
+        return -exchange(playerTwo, dinoTwo, moveTwo, playerOne, dinoOne, moveOne, braced);
+    }
+
+    /**
+     * Scores one round for the side moving first: what it gains from its own
+     * move, minus what the second side gains if it survives to act.
+     */
+    private static double exchange(Player firstPlayer, Dinosaur first, Move firstMove,
+            Player secondPlayer, Dinosaur second, Move secondMove, boolean firstBraced) {
+        double value = gain(firstPlayer, first, second, firstMove, false);
+        double survival = 1.0 - knockOutChance(first, second, firstMove, false);
+        if (survival > 0.0) {
+            value -= survival * gain(secondPlayer, second, first, secondMove, firstBraced);
+        }
+        return value;
+    }
+
+    private static Dinosaur activeAfter(Player player, Move move) {
+        if (move instanceof SwitchMove switchMove) {
+            return player.getDinosaursView().get(switchMove.getTargetIndex());
+        }
+        return player.getActiveDinosaurView();
+    }
+
+    private static boolean movesFirst(Player playerOne, Dinosaur dinoOne, Move moveOne,
+            Player playerTwo, Dinosaur dinoTwo, Move moveTwo) {
+        int p1Priority = moveOne == null ? Integer.MIN_VALUE : AbilityEffects.modifyPriority(dinoOne, moveOne);
+        int p2Priority = moveTwo == null ? Integer.MIN_VALUE : AbilityEffects.modifyPriority(dinoTwo, moveTwo);
+        if (p1Priority != p2Priority) {
+            return p1Priority > p2Priority;
+        }
+        int p1Speed = speed(playerOne, dinoOne);
+        int p2Speed = speed(playerTwo, dinoTwo);
+        if (p1Speed != p2Speed) {
+            return p1Speed > p2Speed;
+        }
+        return playerOne.getTotalHealth() <= playerTwo.getTotalHealth();
+    }
+
+    private static int speed(Player player, Dinosaur active) {
+        int speed = active.getEffectiveSpeed();
+        if (player.hasPersistentEffect("Tailwind")) {
+            speed = Math.round(speed * 1.5f);
+        }
+        return speed;
+    }
+
+    /**
+     * Returns the expected health the attacking side gains from its move:
+     * damage dealt plus healing and drain, minus recoil.
+     */
+    private static double gain(Player attackingPlayer, Dinosaur attacker, Dinosaur defender,
+            Move move, boolean defenderBraced) {
+        if (move == null) {
+            return 0.0;
+        }
+        double accuracy = AbilityEffects.modifyAccuracy(attacker, move);
+        double firstAccuracy = accuracy * firstHitFactor(defender);
+        int hits = MoveEffects.getRepeatCount(move);
+        double landed = firstAccuracy + (hits - 1) * accuracy;
+
+        double damage = 0.0;
+        int perHit = DamageCalculator.calculateIncoming(attacker, defender, move);
+        if (perHit > 0) {
+            double damagingHits = defenderBraced ? landed - firstAccuracy : landed;
+            damage = Math.min(defender.getHealth(), damagingHits * perHit);
+        }
+
+        double value = damage + landed * healing(attackingPlayer, attacker, move);
+        if (damage > 0.0) {
+            if (move.hasEffect(MoveEffect.BIG_DRAIN)) {
+                value += Math.min(missingHealth(attacker), damage * 0.5);
+            } else if (move.hasEffect(MoveEffect.SMALL_DRAIN)) {
+                value += Math.min(missingHealth(attacker), damage * 0.25);
+            }
+            if (move.hasEffect(MoveEffect.RECOIL)) {
+                value -= damage / 4.0;
+            }
+        }
+        return value;
+    }
+
+    private static double healing(Player attackingPlayer, Dinosaur attacker, Move move) {
+        double healed = 0.0;
+        if (move.hasEffect(MoveEffect.SMALL_HEAL)) {
+            healed += Math.min(missingHealth(attacker), AilmentEffects.modifyHealing(attacker, 10));
+        }
+        if (move.hasEffect(MoveEffect.BIG_HEAL)) {
+            healed += Math.min(missingHealth(attacker), AilmentEffects.modifyHealing(attacker, 30));
+        }
+        if (move.hasEffect(MoveEffect.AREA_HEAL)) {
+            List<Dinosaur> roster = attackingPlayer.getDinosaursView();
+            for (int index = 0; index < roster.size(); index++) {
+                Dinosaur dinosaur = roster.get(index);
+                healed += Math.min(missingHealth(dinosaur), AilmentEffects.modifyHealing(dinosaur, 10));
+            }
+        }
+        return healed;
+    }
+
+    /**
+     * Returns the probability that the move knocks the defender out, from the
+     * number of hits needed and the chance of each one landing.
+     */
+    static double knockOutChance(Dinosaur attacker, Dinosaur defender, Move move,
+            boolean defenderBraced) {
+        if (move == null) {
+            return 0.0;
+        }
+        int perHit = DamageCalculator.calculateIncoming(attacker, defender, move);
+        if (perHit <= 0) {
+            return 0.0;
+        }
+        int needed = (defender.getHealth() + perHit - 1) / perHit;
+        int hits = MoveEffects.getRepeatCount(move);
+        if (needed > hits) {
+            return 0.0;
+        }
+        double accuracy = AbilityEffects.modifyAccuracy(attacker, move);
+        double firstAccuracy = defenderBraced ? 0.0 : accuracy * firstHitFactor(defender);
+        double chance = 0.0;
+        for (int outcome = 0; outcome < 1 << hits; outcome++) {
+            if (Integer.bitCount(outcome) < needed) {
+                continue;
+            }
+            double probability = 1.0;
+            for (int hit = 0; hit < hits; hit++) {
+                double landing = hit == 0 ? firstAccuracy : accuracy;
+                probability *= (outcome & (1 << hit)) != 0 ? landing : 1.0 - landing;
+            }
+            chance += probability;
+        }
+        return chance;
+    }
+
+    private static double firstHitFactor(Dinosaur defender) {
+        Ability ability = defender.getAbility();
+        if (ability != null && ability.getType() == AbilityType.CAMOUFLAGE
+                && !defender.isCamouflageUsed()) {
+            return CAMOUFLAGE_MISS;
+        }
+        return 1.0;
+    }
+
+    private static int missingHealth(Dinosaur dinosaur) {
+        return Math.max(0, dinosaur.getMaxHealth() - dinosaur.getHealth());
+    }
+}
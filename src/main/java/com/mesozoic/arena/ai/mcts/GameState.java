@@ -1,24 +1,38 @@
 package com.mesozoic.arena.ai.mcts;
 
 import com.mesozoic.arena.engine.Battle;
+import com.mesozoic.arena.model.BattleJournal;
 import com.mesozoic.arena.model.Dinosaur;
 import com.mesozoic.arena.model.Move;
 import com.mesozoic.arena.model.Player;
 import com.mesozoic.arena.model.SwitchMove;
+import com.mesozoic.arena.model.ZobristHash;
 import com.mesozoic.arena.engine.TurnRecord;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
 /**
  * Lightweight representation of a battle state used for MCTS simulations.
+ * <p>
+ * A state can either be advanced into a fresh copy with
+ * {@link #nextState(Move, Move, Random)} or mutated in place with
+ * {@link #apply(Move, Move, Random)} and reverted with {@link #undo()}.
  */
 public class GameState {
     private final Player playerOne;
     private final Player playerTwo;
     private final Battle battle;
-    private final List<TurnRecord> history;
+    private final BattleJournal journal = new BattleJournal();
+    private final ZobristHash zobrist = new ZobristHash();
+    private int[] frameMarks = new int[8];
+    private int[] frameRounds = new int[8];
+    private boolean[] frameBraceOne = new boolean[8];
+    private boolean[] frameBraceTwo = new boolean[8];
+    private Player[] frameWinners = new Player[8];
+    private int depth;
 
     /**
      * Creates a new simulation state from the given players.
@@ -29,8 +43,18 @@ public class GameState {
         this(playerOne, playerTwo, List.of());
     }
 
+    /**
+     * Creates a simulation state continuing after the given turns. Only the
+     * number of turns and the last one are kept; simulated turns are not
+     * recorded either.
+     */
     public GameState(Player playerOne, Player playerTwo, List<TurnRecord> history) {
-        this(playerOne.copy(), playerTwo.copy(), false, history);
+        this(playerOne.copy(), playerTwo.copy(), false);
+        if (history != null && !history.isEmpty()) {
+            TurnRecord last = history.get(history.size() - 1);
+            battle.restoreLastTurn(history.size(), last.getPlayerTurnAction().isBrace(),
+                    last.getNpcTurnAction().isBrace());
+        }
     }
 
     /**
@@ -40,11 +64,14 @@ public class GameState {
      * @param playerTwo   player representing the second side
      * @param applyEntry  when true, active dinosaurs trigger entry abilities
      */
-    private GameState(Player playerOne, Player playerTwo, boolean applyEntry, List<TurnRecord> history) {
+    private GameState(Player playerOne, Player playerTwo, boolean applyEntry) {
         this.playerOne = playerOne;
         this.playerTwo = playerTwo;
-        this.history = history == null ? new ArrayList<>() : new ArrayList<>(history);
-        this.battle = new Battle(this.playerOne, this.playerTwo, this.history, applyEntry);
+        this.battle = Battle.forSimulation(this.playerOne, this.playerTwo, applyEntry);
+        this.playerOne.attachJournal(journal);
+        this.playerTwo.attachJournal(journal);
+        this.playerOne.attachHash(zobrist, 0);
+        this.playerTwo.attachHash(zobrist, 1);
     }
 
     public Player getPlayerOne() {
@@ -55,50 +82,215 @@ public class GameState {
         return playerTwo;
     }
 
+    /**
+     * Returns the 64-bit Zobrist hash of the current position. It covers
+     * health, stages, Camouflage and ailments of the remaining dinosaurs as
+     * well as the active and queued dinosaur and persistent effects of both
+     * players. The hash is updated in constant time by every change,
+     * including {@link #undo()}.
+     */
+    public long hash() {
+        return zobrist.get();
+    }
+
+    /**
+     * Returns the number of turns played so far, including those of the
+     * history this state was created from.
+     */
+    public int getRounds() {
+        return battle.getRounds();
+    }
+
+    /**
+     * Indicates whether the other state holds the same position after the
+     * same number of turns, comparing hashes, the last brace flags and the
+     * winner.
+     */
+    boolean samePosition(GameState other) {
+        return other != null
+                && hash() == other.hash()
+                && getRounds() == other.getRounds()
+                && lastActionWasBrace(playerOne) == other.lastActionWasBrace(other.playerOne)
+                && lastActionWasBrace(playerTwo) == other.lastActionWasBrace(other.playerTwo)
+                && winner() == other.winner();
+    }
+
+    /**
+     * Clears the switch player one has queued, if any. Like
+     * {@link #advance} the change is not recorded for undo.
+     */
+    void clearQueuedSwitchOfPlayerOne() {
+        if (depth > 0) {
+            throw new IllegalStateException("Cannot clear a switch with pending undo frames");
+        }
+        journal.setRecording(false);
+        try {
+            playerOne.clearQueuedSwitch();
+        } finally {
+            journal.setRecording(true);
+        }
+    }
+
+    /**
+     * Indicates whether the given player braced on the last turn.
+     */
+    public boolean lastActionWasBrace(Player player) {
+        return battle.lastActionWasBrace(player);
+    }
+
     /**
      * Returns the moves available to the active dinosaur of the given player.
      */
     public List<Move> availableMovesFor(Player player) {
-        if (player == null) {
+        if (player == null || player.getActiveDinosaurView() == null) {
             return List.of();
         }
-        Dinosaur active = player.getActiveDinosaur();
+        List<Move> moves = new ArrayList<>();
+        collectMoves(player, moves, null);
+        return moves;
+    }
+
+    /**
+     * Replaces the contents of {@code moves} with the moves available to the
+     * given player, taking switch moves from the arena when one is given.
+     */
+    void collectMoves(Player player, List<Move> moves, RolloutArena arena) {
+        moves.clear();
+        Dinosaur active = player == null ? null : player.getActiveDinosaurView();
         if (active == null) {
-            return List.of();
+            return;
+        }
+        for (int index = 0; index < active.getMoveCount(); index++) {
+            moves.add(active.getMove(index));
         }
-        List<Move> moves = new ArrayList<>(active.getMoves());
-        List<Dinosaur> roster = player.getDinosaurs();
+        int side = player == playerOne ? 0 : 1;
+        List<Dinosaur> roster = player.getDinosaursView();
         for (int index = 0; index < roster.size(); index++) {
             Dinosaur bench = roster.get(index);
             if (!bench.equals(active)) {
-                moves.add(new SwitchMove(bench, index));
+                moves.add(arena == null ? new SwitchMove(bench, index)
+                        : arena.switchMove(side, bench, index));
             }
         }
-        return moves;
+    }
+
+    /**
+     * Returns an independent copy of this state. Undo information is not
+     * carried over. Dinosaurs and persistent effects are shared copy-on-write
+     * with this state, so a copy only duplicates what either state changes
+     * afterwards. While applied rounds are pending the players are copied
+     * deeply instead, as shared objects could not be rolled back.
+     */
+    public GameState copy() {
+        Player one = depth == 0 ? playerOne.copyOnWrite() : playerOne.copy();
+        Player two = depth == 0 ? playerTwo.copyOnWrite() : playerTwo.copy();
+        GameState clone = new GameState(one, two, false);
+        clone.battle.restoreLastTurn(battle.getRounds(), battle.lastActionWasBrace(playerOne),
+                battle.lastActionWasBrace(playerTwo));
+        Player winner = battle.getWinner();
+        if (winner != null) {
+            clone.battle.restoreWinner(winner == playerOne ? clone.playerOne : clone.playerTwo);
+        }
+        return clone;
+    }
+
+    /**
+     * Overwrites this state with the position of the source state so that a
+     * scratch state can be reused between rollouts. Neither state may have
+     * applied rounds pending.
+     */
+    void resetFrom(GameState source) {
+        if (depth > 0 || source.depth > 0) {
+            throw new IllegalStateException("Cannot reset with pending undo frames");
+        }
+        journal.clear();
+        playerOne.restoreFrom(source.playerOne);
+        playerTwo.restoreFrom(source.playerTwo);
+        battle.restoreLastTurn(source.battle.getRounds(), source.battle.lastActionWasBrace(source.playerOne),
+                source.battle.lastActionWasBrace(source.playerTwo));
+        Player winner = source.battle.getWinner();
+        if (winner == null) {
+            battle.restoreWinner(null);
+        } else {
+            battle.restoreWinner(winner == source.playerOne ? playerOne : playerTwo);
+        }
     }
 
     /**
      * Produces the next game state after both players perform their moves.
+     * This state is left untouched.
      */
     public GameState nextState(Move playerOneMove, Move playerTwoMove, Random random) {
-        Player nextPlayerOne = playerOne.copy();
-        Player nextPlayerTwo = playerTwo.copy();
+        GameState next = copy();
+        next.advance(playerOneMove, playerTwoMove, random);
+        return next;
+    }
+
+    /**
+     * Performs both moves on this state in place and remembers how to revert
+     * them. Every call must be matched by a later {@link #undo()}.
+     */
+    public void apply(Move playerOneMove, Move playerTwoMove, Random random) {
+        if (depth == frameMarks.length) {
+            int capacity = depth * 2;
+            frameMarks = Arrays.copyOf(frameMarks, capacity);
+            frameRounds = Arrays.copyOf(frameRounds, capacity);
+            frameBraceOne = Arrays.copyOf(frameBraceOne, capacity);
+            frameBraceTwo = Arrays.copyOf(frameBraceTwo, capacity);
+            frameWinners = Arrays.copyOf(frameWinners, capacity);
+        }
+        frameMarks[depth] = journal.mark();
+        frameRounds[depth] = battle.getRounds();
+        frameBraceOne[depth] = battle.lastActionWasBrace(playerOne);
+        frameBraceTwo[depth] = battle.lastActionWasBrace(playerTwo);
+        frameWinners[depth] = battle.getWinner();
+        depth++;
+        execute(playerOneMove, playerTwoMove, random);
+    }
+
+    /**
+     * Reverts the most recent {@link #apply(Move, Move, Random)} call.
+     */
+    public void undo() {
+        if (depth == 0) {
+            throw new IllegalStateException("No applied round to undo");
+        }
+        depth--;
+        journal.rollback(frameMarks[depth]);
+        battle.restoreLastTurn(frameRounds[depth], frameBraceOne[depth], frameBraceTwo[depth]);
+        battle.restoreWinner(frameWinners[depth]);
+        frameWinners[depth] = null;
+    }
 
+    /**
+     * Performs both moves on this state in place without keeping undo
+     * information. Intended for rollouts that never rewind. Must not be
+     * called while applied rounds are still waiting to be undone.
+     */
+    public void advance(Move playerOneMove, Move playerTwoMove, Random random) {
+        if (depth > 0) {
+            throw new IllegalStateException("Cannot advance with pending undo frames");
+        }
+        journal.setRecording(false);
+        try {
+            execute(playerOneMove, playerTwoMove, random);
+        } finally {
+            journal.setRecording(true);
+        }
+    }
+
+    private void execute(Move playerOneMove, Move playerTwoMove, Random random) {
         if (playerOneMove instanceof SwitchMove switchOne) {
-            Dinosaur target = nextPlayerOne.getDinosaurs().get(switchOne.getTargetIndex());
-            nextPlayerOne.queueSwitch(target);
+            Dinosaur target = playerOne.getDinosaursView().get(switchOne.getTargetIndex());
+            playerOne.queueSwitch(target);
             playerOneMove = null;
         }
         if (playerTwoMove instanceof SwitchMove switchTwo) {
-            Dinosaur target = nextPlayerTwo.getDinosaurs().get(switchTwo.getTargetIndex());
-            nextPlayerTwo.queueSwitch(target);
+            Dinosaur target = playerTwo.getDinosaursView().get(switchTwo.getTargetIndex());
+            playerTwo.queueSwitch(target);
             playerTwoMove = null;
         }
-
-        List<TurnRecord> nextHistory = new ArrayList<>(history);
-        GameState next = new GameState(nextPlayerOne, nextPlayerTwo, false, nextHistory);
-        next.battle.executeRound(playerOneMove, playerTwoMove, random);
-        return next;
+        battle.executeRound(playerOneMove, playerTwoMove, random);
     }
 
     /**
@@ -0,0 +1,166 @@
+package com.mesozoic.arena.ai.mcts;
+
+import com.mesozoic.arena.engine.BattleKernel;
+import com.mesozoic.arena.engine.PackedBattleState;
+import com.mesozoic.arena.model.Player;
+
+import java.util.Random;
+
+/**
+ * Plays SIMULATION rollouts on a {@link BattleKernel} instead of a
+ * {@link GameState}.
+ * <p>
+ * The position is encoded once into a {@link PackedBattleState} and played
+ * out in place. The minimax part of the policy probes every joint action on
+ * a scratch copy of the packed position rather than applying and undoing it
+ * on the player and dinosaur objects. Actions are listed in the order of
+ * {@link GameState#availableMovesFor} and random numbers are drawn in the
+ * same order as {@link MCTSNode#playout}, so for the same random stream both
+ * return the same result.
+ * <p>
+ * The kernel is built once for the rosters of the root and shared by every
+ * node and thread of the search; it holds no mutable state.
+ */
+final class KernelRollouts {
+    private final BattleKernel kernel;
+    private final int maxActions;
+
+    KernelRollouts(GameState root) {
+        this.kernel = new BattleKernel(root.getPlayerOne(), root.getPlayerTwo());
+        int slots = kernel.getSlotsPerSide();
+        int maxMoves = 0;
+        for (int side = 0; side < 2; side++) {
+            for (int slot = 0; slot < slots; slot++) {
+                maxMoves = Math.max(maxMoves, kernel.getMoveCount(side, slot));
+            }
+        }
+        this.maxActions = maxMoves + slots;
+    }
+
+    /**
+     * Plays the given state out with the SIMULATION rollout policy and scores
+     * the result for player two. The state itself is left untouched.
+     *
+     * @param pool the arena whose scratch buffers to use, or {@code null}
+     */
+    double playout(GameState start, Random random, double selfProbability,
+            double opponentProbability, RolloutArena pool) {
+        PackedBattleState current = encode(start);
+        PackedBattleState probe = pool == null ? current.copy() : pool.probe(current);
+        int[] maxActions = pool == null ? new int[this.maxActions] : pool.actions(0, this.maxActions);
+        int[] minActions = pool == null ? new int[this.maxActions] : pool.actions(1, this.maxActions);
+        int steps = 0;
+        while (current.getWinner() == 0 && steps < MCTSNode.MAX_ROLLOUT_STEPS) {
+            int ourAction = chooseAction(current, probe, 1, random, selfProbability,
+                    maxActions, minActions);
+            int opponentAction = chooseAction(current, probe, 0, random, opponentProbability,
+                    maxActions, minActions);
+            kernel.executeRound(current, opponentAction, ourAction, random);
+            steps++;
+        }
+        int winner = current.getWinner() == 1 ? 1 : current.getWinner() == 2 ? -1 : 0;
+        return MCTSNode.score(winner, current.getTotalHealth(0), current.getTotalHealth(1), steps);
+    }
+
+    private PackedBattleState encode(GameState state) {
+        Player one = state.getPlayerOne();
+        Player two = state.getPlayerTwo();
+        int winner = state.winner() == 1 ? 1 : state.winner() == -1 ? 2 : 0;
+        return kernel.encode(one, two, state.lastActionWasBrace(one),
+                state.lastActionWasBrace(two), winner);
+    }
+
+    /**
+     * Picks the action of the given side: the minimax reply with the given
+     * probability, otherwise a uniformly random action.
+     */
+    private int chooseAction(PackedBattleState state, PackedBattleState probe, int side,
+            Random random, double minimaxProbability, int[] maxActions, int[] minActions) {
+        if (random.nextDouble() < minimaxProbability) {
+            return minimaxAction(state, probe, side, random, maxActions, minActions);
+        }
+        int count = actionsFor(state, side, maxActions);
+        if (count == 0) {
+            return BattleKernel.NO_ACTION;
+        }
+        return maxActions[random.nextInt(count)];
+    }
+
+    private int minimaxAction(PackedBattleState state, PackedBattleState probe, int side,
+            Random random, int[] maxActions, int[] minActions) {
+        int maxCount = actionsFor(state, side, maxActions);
+        if (maxCount == 0) {
+            return BattleKernel.NO_ACTION;
+        }
+        int minCount = actionsFor(state, 1 - side, minActions);
+        if (minCount == 0) {
+            return maxActions[random.nextInt(maxCount)];
+        }
+        int bestIndex = -1;
+        int bestValue = Integer.MIN_VALUE;
+        for (int maxIndex = 0; maxIndex < maxCount; maxIndex++) {
+            int worstValue = Integer.MAX_VALUE;
+            for (int minIndex = 0; minIndex < minCount; minIndex++) {
+                probe.copyFrom(state);
+                if (side == 0) {
+                    kernel.executeRound(probe, maxActions[maxIndex], minActions[minIndex], random);
+                } else {
+                    kernel.executeRound(probe, minActions[minIndex], maxActions[maxIndex], random);
+                }
+                int value = evaluate(probe);
+                if (side != 0) {
+                    value = -value;
+                }
+                if (value < worstValue) {
+                    worstValue = value;
+                }
+            }
+            if (worstValue > bestValue) {
+                bestValue = worstValue;
+                bestIndex = maxIndex;
+            }
+        }
+        if (bestIndex < 0) {
+            return maxActions[random.nextInt(maxCount)];
+        }
+        return maxActions[bestIndex];
+    }
+
+    /**
+     * Fills the buffer with the actions of the given side, moves of the
+     * active dinosaur first and then switches in roster order, and returns
+     * their number.
+     */
+    private int actionsFor(PackedBattleState state, int side, int[] actions) {
+        int active = state.getActiveSlot(side);
+        if (active < 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int move = 0; move < kernel.getMoveCount(side, active); move++) {
+            actions[count++] = move;
+        }
+        int alive = state.getAliveMask(side);
+        for (int slot = 0; slot < kernel.getSlotsPerSide(); slot++) {
+            if (slot != active && (alive & (1 << slot)) != 0) {
+                actions[count++] = BattleKernel.SWITCH_ACTION + slot;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Scores a position for side one like the minimax evaluation of
+     * {@link MCTSNode}.
+     */
+    private static int evaluate(PackedBattleState state) {
+        int winner = state.getWinner();
+        if (winner == 1) {
+            return Integer.MAX_VALUE / 2;
+        }
+        if (winner == 2) {
+            return Integer.MIN_VALUE / 2;
+        }
+        return state.getTotalHealth(0) - state.getTotalHealth(1);
+    }
+}
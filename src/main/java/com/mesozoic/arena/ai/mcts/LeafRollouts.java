@@ -0,0 +1,98 @@
+package com.mesozoic.arena.ai.mcts;
+
+import com.mesozoic.arena.util.SplittableRng;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays a batch of rollouts from one leaf, in parallel when a pool is given.
+ * <p>
+ * Each rollout draws from its own stream split off the caller's simulation
+ * random, so a batch is reproducible regardless of which threads run it.
+ * Rollouts and allocated bytes are counted here because the rollouts may run
+ * on threads whose {@link RolloutArena} the search never sees.
+ */
+final class LeafRollouts {
+    private final ForkJoinPool pool;
+    private final int count;
+    private final LongAdder rollouts = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private volatile boolean measured = true;
+
+    /**
+     * @param pool  the pool to run batches on, or {@code null} to run them
+     *              on the calling thread
+     * @param count the number of rollouts per leaf
+     */
+    LeafRollouts(ForkJoinPool pool, int count) {
+        this.pool = pool;
+        this.count = Math.max(1, count);
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Plays the batch from the given node and returns the results in the
+     * order their random streams were split.
+     */
+    double[] run(MCTSNode node, Random simulationRandom) {
+        double[] results = new double[count];
+        if (pool == null) {
+            for (int index = 0; index < count; index++) {
+                results[index] = play(node, SplittableRng.splitFrom(simulationRandom));
+            }
+            return results;
+        }
+        List<Callable<Double>> batch = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            Random random = SplittableRng.splitFrom(simulationRandom);
+            batch.add(() -> play(node, random));
+        }
+        try {
+            List<Future<Double>> futures = pool.invokeAll(batch);
+            for (int index = 0; index < count; index++) {
+                results[index] = futures.get(index).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Leaf rollouts interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Leaf rollout failed", e.getCause());
+        }
+        return results;
+    }
+
+    private double play(MCTSNode node, Random random) {
+        RolloutArena arena = RolloutArena.current();
+        long before = arena.getAllocatedBytes();
+        double result = node.rollout(random);
+        if (before < 0) {
+            measured = false;
+        } else {
+            allocatedBytes.add(arena.getAllocatedBytes() - before);
+        }
+        rollouts.increment();
+        return result;
+    }
+
+    long getRollouts() {
+        return rollouts.sum();
+    }
+
+    /**
+     * Returns the bytes allocated by the batches so far, or -1 when
+     * allocations cannot be measured.
+     */
+    long getAllocatedBytes() {
+        return measured ? allocatedBytes.sum() : -1L;
+    }
+}
@@ -6,12 +6,41 @@ import com.mesozoic.arena.model.Player;
 import com.mesozoic.arena.model.SwitchMove;
 import com.mesozoic.arena.model.Dinosaur;
 import com.mesozoic.arena.engine.TurnRecord;
+import com.mesozoic.arena.util.Config;
+import com.mesozoic.arena.util.SplittableRng;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Opponent controlled by Monte Carlo Tree Search.
+ * <p>
+ * With more than one thread the search is root-parallel by default: each
+ * thread grows an independent tree with its own random streams and
+ * transposition table, and the visit counts and scores of the root moves are
+ * summed before the move with the most visits is chosen. In
+ * {@link Parallelism#TREE} mode the threads instead share one deeper tree.
+ * With the ANALYTIC rollout policy all trees share one {@link ReplyCache}
+ * of rollout replies.
+ * <p>
+ * With {@link Selection#DUCT} every node keeps separate statistics for both
+ * players and the root moves are reported summed over the opponent replies.
+ * Open-loop trees store only moves and statistics below the root.
+ * <p>
+ * Trees are kept between turns: the next search starts from the child whose
+ * state matches the position the battle actually reached, if there is one.
+ * The agent can also ponder: search the current position in the background
+ * while the human chooses a move, and continue from that tree afterwards.
  */
 public class MCTSAgent implements OpponentAgent {
     private final int iterations;
@@ -20,17 +49,48 @@ public class MCTSAgent implements OpponentAgent {
     private final double epsilon;
     private final double selfProbability;
     private final double opponentProbability;
+    private int threads;
+    private Parallelism parallelism;
+    private TranspositionTable[] tables;
+    private final ReplyCache replyCache;
+    private ReplyCache.Scope replyScope;
+    private final boolean rolloutArena;
+    private final boolean rolloutKernel;
+    private int leafRollouts;
+    private long timeBudgetMs;
+    private ThinkTimeManager thinkTime;
+    private Selection selectionMode;
+    private boolean openLoop;
+    private boolean reuseTree;
+    private MCTSNode[] previousRoots;
+    private int lastReusedVisits;
+    private boolean ponder;
+    private ExecutorService ponderExecutor;
+    private Future<List<SearchResult>> ponderTask;
+    private List<AtomicInteger> ponderBudgets;
+    private MCTSNode[] ponderRoots;
+    private int ponderedIterations;
+    private int lastPondered;
+    private int lastIterations;
+    private ForkJoinPool pool;
+    private ForkJoinPool rolloutPool;
     private String lastStats = "";
-    private int expansionCounter = 0;
+
+    /**
+     * Creates an agent whose searches are fully determined by the seed.
+     */
+    public MCTSAgent(int iterations, long seed) {
+        this(iterations, new SplittableRng(seed));
+    }
 
     public MCTSAgent(int iterations, Random random) {
-        this(iterations, new Random(random.nextLong()),
-                new Random(random.nextLong()), 0.1, 0.5, 0.75);
+        this(iterations, SplittableRng.splitFrom(random),
+                SplittableRng.splitFrom(random), 0.1, 0.5, 0.75);
     }
 
     public MCTSAgent(int iterations, Random random, double epsilon) {
-        this(iterations, new Random(random.nextLong()),
-                new Random(random.nextLong()), epsilon, 0.5, 0.75);
+        this(iterations, SplittableRng.splitFrom(random),
+                SplittableRng.splitFrom(random), epsilon, 0.5, 0.75);
     }
 
     public MCTSAgent(int iterations, Random selectionRandom, Random simulationRandom) {
@@ -50,84 +110,345 @@ public class MCTSAgent implements OpponentAgent {
         this.epsilon = epsilon;
         this.selfProbability = selfMinimaxProbability;
         this.opponentProbability = opponentMinimaxProbability;
+        this.threads = resolveThreads(Config.mctsThreads());
+        this.parallelism = Parallelism.fromString(Config.mctsParallelism());
+        this.leafRollouts = Config.mctsLeafRollouts();
+        this.timeBudgetMs = Config.mctsTimeBudgetMs();
+        this.selectionMode = Selection.fromString(Config.mctsSelection());
+        this.openLoop = Config.mctsOpenLoop();
+        this.reuseTree = Config.mctsReuseTree();
+        this.ponder = Config.mctsPonder();
+        this.rolloutArena = Config.mctsRolloutArena();
+        this.rolloutKernel = Config.mctsRolloutKernel();
+        int replyEntries = Config.mctsReplyCacheEntries();
+        this.replyCache = replyEntries > 0 ? new ReplyCache(replyEntries) : null;
+        this.replyScope = ReplyCache.Scope.fromString(Config.mctsReplyCacheScope());
+        long gameBudgetMs = Config.mctsGameBudgetMs();
+        if (gameBudgetMs > 0) {
+            this.thinkTime = new ThinkTimeManager(gameBudgetMs, Config.mctsExpectedTurns());
+        }
+    }
+
+    /**
+     * How several threads divide the search.
+     */
+    public enum Parallelism {
+        /** Each thread grows its own tree and the root statistics are merged. */
+        ROOT,
+        /** All threads grow one shared tree, spread apart by virtual loss. */
+        TREE;
+
+        /**
+         * Parses a mode name ignoring case, returning {@link #ROOT} if the
+         * value is invalid.
+         */
+        public static Parallelism fromString(String label) {
+            if (label != null) {
+                for (Parallelism mode : values()) {
+                    if (mode.name().equalsIgnoreCase(label.trim())) {
+                        return mode;
+                    }
+                }
+            }
+            return ROOT;
+        }
+    }
+
+    /**
+     * How moves are selected inside the tree.
+     */
+    public enum Selection {
+        /**
+         * UCT over our moves, each child fixing one sampled opponent reply.
+         */
+        UCT,
+        /**
+         * Decoupled UCT: both players select from their own statistics and
+         * joint-action children are created on demand.
+         */
+        DUCT;
+
+        /**
+         * Parses a selection name ignoring case, returning {@link #UCT} if
+         * the value is invalid.
+         */
+        public static Selection fromString(String label) {
+            if (label != null) {
+                for (Selection mode : values()) {
+                    if (mode.name().equalsIgnoreCase(label.trim())) {
+                        return mode;
+                    }
+                }
+            }
+            return UCT;
+        }
+    }
+
+    private static TranspositionTable[] createTables(int count) {
+        TranspositionTable[] created = new TranspositionTable[count];
+        int megabytes = Config.mctsTranspositionTableMb();
+        if (megabytes <= 0) {
+            return created;
+        }
+        TranspositionTable.Replacement replacement =
+                TranspositionTable.Replacement.fromString(Config.mctsTranspositionReplacement());
+        for (int index = 0; index < count; index++) {
+            created[index] = new TranspositionTable(megabytes * 1024L * 1024L / count, replacement);
+        }
+        return created;
+    }
+
+    private static int resolveThreads(int configured) {
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the number of threads searching in parallel. Values of zero or
+     * less use one thread per available processor.
+     */
+    public void setThreads(int threads) {
+        this.threads = resolveThreads(threads);
+    }
+
+    public void setParallelism(Parallelism parallelism) {
+        this.parallelism = parallelism == null ? Parallelism.ROOT : parallelism;
+    }
+
+    /**
+     * Sets the number of rollouts played from every expanded leaf. Batches
+     * larger than one run on a pool of {@code threads} workers. Open-loop
+     * trees always play one rollout per descent.
+     */
+    public void setLeafRollouts(int leafRollouts) {
+        this.leafRollouts = Math.max(1, leafRollouts);
+    }
+
+    /**
+     * Sets the wall-clock time a search may take. A positive budget replaces
+     * the iteration count: the search runs until the deadline has passed and
+     * then returns the best move found so far. Zero restores the fixed count.
+     */
+    public void setTimeBudgetMs(long timeBudgetMs) {
+        this.timeBudgetMs = Math.max(0L, timeBudgetMs);
+    }
+
+    public long getTimeBudgetMs() {
+        return timeBudgetMs;
+    }
+
+    /**
+     * Hands the think time of every following search to the given manager,
+     * which takes precedence over the per-move time budget. {@code null}
+     * turns it off.
+     */
+    public void setThinkTimeManager(ThinkTimeManager thinkTime) {
+        this.thinkTime = thinkTime;
+    }
+
+    public ThinkTimeManager getThinkTimeManager() {
+        return thinkTime;
+    }
+
+    public void setSelection(Selection selection) {
+        this.selectionMode = selection == null ? Selection.UCT : selection;
+    }
+
+    /**
+     * Sets whether trees are open-loop: nodes below the root keep only their
+     * move and statistics and every descent replays the position from the
+     * root, so chance outcomes are sampled afresh each time. Open-loop trees
+     * use UCT over our moves with the opponent reply drawn from the rollout
+     * policy, and are not carried over between turns.
+     */
+    public void setOpenLoop(boolean openLoop) {
+        this.openLoop = openLoop;
+    }
+
+    /**
+     * Sets whether a search continues from the subtree of the previous search
+     * that matches the position actually reached, keeping its statistics.
+     */
+    public void setReuseTree(boolean reuseTree) {
+        this.reuseTree = reuseTree;
+        if (!reuseTree) {
+            previousRoots = null;
+        }
+    }
+
+    /**
+     * Sets whether the rollout replies cached during a search are kept for
+     * the following searches of this game.
+     */
+    public void setReplyCacheScope(ReplyCache.Scope scope) {
+        this.replyScope = scope == null ? ReplyCache.Scope.SEARCH : scope;
+    }
+
+    /**
+     * Returns the cache of rollout replies, or {@code null} if it is
+     * disabled in the configuration.
+     */
+    public ReplyCache getReplyCache() {
+        return replyCache;
+    }
+
+    /**
+     * Returns the root visits carried over from the previous turn by the
+     * most recent search.
+     */
+    public int getLastReusedVisits() {
+        return lastReusedVisits;
+    }
+
+    /**
+     * Returns the iterations pondered on the position of the most recent
+     * search before it started.
+     */
+    public int getLastPondered() {
+        return lastPondered;
+    }
+
+    /**
+     * Returns the number of iterations completed by the most recent search.
+     */
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    private ForkJoinPool rolloutPool() {
+        if (rolloutPool == null || rolloutPool.getParallelism() != threads) {
+            if (rolloutPool != null) {
+                rolloutPool.shutdown();
+            }
+            rolloutPool = new ForkJoinPool(threads);
+        }
+        return rolloutPool;
     }
 
     @Override
     public Move chooseMove(Player self, Player enemy, List<TurnRecord> history) {
-        if (self == null || self.getActiveDinosaur() == null) {
+        if (self == null || self.getActiveDinosaurView() == null) {
             return null;
         }
 
-        GameState rootState = new GameState(enemy, self, history);
-        MCTSNode root = new MCTSNode(rootState, null, null,
-                selfProbability, opponentProbability);
-        expansionCounter = 0;
+        long started = System.nanoTime();
+        stopPondering();
+        GameState rootState = rootStateFor(self, enemy, history);
+        int limit = isTimed() ? Integer.MAX_VALUE : iterations;
+        int workers = Math.max(1, Math.min(threads, limit));
+        boolean sharedTree = workers > 1 && parallelism == Parallelism.TREE;
+        int trees = sharedTree ? 1 : workers;
+        MCTSNode[] roots = rootsFor(rootState, trees);
+        Deadline deadline = null;
+        if (thinkTime != null) {
+            int legalMoves = rootState.availableMovesFor(rootState.getPlayerTwo()).size();
+            long soft = thinkTime.allocate(self, enemy, legalMoves);
+            deadline = new Deadline(started, soft, thinkTime.getHardLimitMs(), thinkTime, roots);
+        } else if (timeBudgetMs > 0) {
+            deadline = new Deadline(started, timeBudgetMs, timeBudgetMs, null, roots);
+        }
+        int reusedVisits = 0;
+        for (MCTSNode root : roots) {
+            reusedVisits += root.getVisitCount();
+        }
+        int pondered = lastPondered;
+        if (deadline == null) {
+            limit = Math.max(0, limit - pondered);
+        }
+        previousRoots = reuseTree ? roots : null;
+        LeafRollouts leaves = createLeafRollouts();
+        List<SearchResult> results = runSearches(
+                searchesFor(roots, workers, sharedTree, limit, deadline, leaves, null));
+        if (sharedTree) {
+            results = new ArrayList<>(results);
+            results.add(new SearchResult(roots[0], 0, 0L, 0L));
+        }
 
-        for (int i = 0; i < iterations; i++) {
-            MCTSNode node = root;
-            while (node.isFullyExpanded() && !node.getChildren().isEmpty()) {
-                node = node.bestChild(selectionRandom, epsilon);
-            }
-            if (!node.getState().isTerminal()) {
-                boolean expanded = false;
-                Move expandedMove = null;
-                if (!node.isFullyExpanded()) {
-                    node = node.expand(selectionRandom, simulationRandom);
-                    expanded = true;
-                    expandedMove = node.getMove();
-                    expansionCounter++;
-                    if (expandedMove != null) {
-                        //System.out.println("Expansion " + expansionCounter + ": " + expandedMove.getName());
-                    }
+        Map<String, RootChoice> choices = new LinkedHashMap<>();
+        long rollouts = 0;
+        long allocatedBytes = 0;
+        int completed = 0;
+        for (SearchResult result : results) {
+            completed += result.iterations;
+            if (result.root != null) {
+                for (MoveStatistics move : result.root.moveStatistics()) {
+                    choices.computeIfAbsent(move.getMove().getName(), name -> new RootChoice(move.getMove()))
+                            .add(move);
                 }
-                double result = node.rollout(simulationRandom);
-                if (expanded && expandedMove != null) {
-                    //System.out.println("First rollout result for " + expandedMove.getName() + ": " + result);
-                }
-                node.backpropagate(result);
-                continue;
             }
-            double result = node.rollout(simulationRandom);
-            node.backpropagate(result);
+            rollouts += result.rollouts;
+            allocatedBytes += result.allocatedBytes;
+        }
+        if (leaves != null) {
+            rollouts = leaves.getRollouts();
+            allocatedBytes = leaves.getAllocatedBytes();
         }
 
         StringBuilder summary = new StringBuilder();
-        for (MCTSNode child : root.getChildren()) {
-            if (child.getVisitCount() == 0) {
+        for (RootChoice choice : choices.values()) {
+            if (choice.visits == 0) {
                 continue;
             }
-            double average = child.getWinScore() / child.getVisitCount();
+            double average = choice.winScore / choice.visits;
             summary.append("\n");
-            summary.append(child.getMove().getName())
+            summary.append(choice.move.getName())
                     .append(": ")
-                    .append(child.getVisitCount())
+                    .append(choice.visits)
                     .append(" visits, ")
-                    .append(child.getWinCount())
+                    .append(choice.wins)
                     .append(" wins, ")
                     .append(" avg score ")
                     .append(String.format("%.2f", average));
         }
+        for (TranspositionTable table : tables) {
+            if (table != null) {
+                summary.append("\n").append(table.describe());
+            }
+        }
+        if (replyCache != null) {
+            summary.append("\n").append(replyCache.describe());
+        }
+        summary.append("\n").append(RolloutArena.describe(rollouts, allocatedBytes));
+        if (sharedTree) {
+            summary.append("\nTree-parallel search: ").append(workers).append(" threads");
+        } else if (workers > 1) {
+            summary.append("\nRoot-parallel search: ").append(workers).append(" trees");
+        }
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000L;
+        lastIterations = completed;
+        lastReusedVisits = reusedVisits;
+        if (reuseTree || pondered > 0) {
+            summary.append("\nTree reuse: ").append(reusedVisits).append(" iterations carried over");
+        }
+        if (pondered > 0) {
+            summary.append("\nPondered ").append(pondered).append(" iterations while waiting");
+        }
+        summary.append("\nIterations: ").append(completed).append(" in ")
+                .append(elapsedMs).append(" ms");
+        if (thinkTime != null) {
+            thinkTime.record(elapsedMs);
+            summary.append("\n").append(thinkTime.describe());
+        }
+        if (leaves != null) {
+            summary.append("\nLeaf-parallel rollouts: ").append(leaves.getCount()).append(" per leaf");
+        }
         lastStats = summary.toString();
 
-        MCTSNode bestChild = null;
-        int highestVisits = -1;
-        for (MCTSNode child : root.getChildren()) {
-            if (child.getVisitCount() > highestVisits) {
-                highestVisits = child.getVisitCount();
-                bestChild = child;
+        RootChoice best = null;
+        for (RootChoice choice : choices.values()) {
+            if (best == null || choice.visits > best.visits) {
+                best = choice;
             }
         }
 
-
-        if (bestChild == null) {
-            List<Move> moves = self.getActiveDinosaur().getMoves();
+        if (best == null) {
+            List<Move> moves = self.getActiveDinosaurView().getMoves();
             if (moves.isEmpty()) {
                 return null;
             }
             return moves.get(selectionRandom.nextInt(moves.size()));
         }
 
-        Move chosen = bestChild.getMove();
+        Move chosen = best.move;
         if (chosen instanceof SwitchMove switchMove) {
             List<Dinosaur> dinos = self.getDinosaurs();
             if (switchMove.getTargetIndex() >= 0
@@ -140,6 +461,432 @@ public class MCTSAgent implements OpponentAgent {
         return chosen;
     }
 
+    /**
+     * Returns the state a search starts from, with the enemy as player one.
+     * A switch the enemy has queued is its choice for the coming turn, which
+     * the search must not see; leaving it out also gives pondering, which
+     * starts before that choice, the same root as the search that follows.
+     */
+    private static GameState rootStateFor(Player self, Player enemy, List<TurnRecord> history) {
+        GameState rootState = new GameState(enemy, self, history);
+        rootState.clearQueuedSwitchOfPlayerOne();
+        return rootState;
+    }
+
+    /**
+     * Returns the roots to search the given position from: the pondered
+     * roots if they hold this position, otherwise the matching subtrees of
+     * the previous search where tree reuse is on, and new roots for the rest.
+     */
+    private MCTSNode[] rootsFor(GameState rootState, int trees) {
+        MCTSNode[] roots = ponderRoots;
+        ponderRoots = null;
+        lastPondered = 0;
+        if (roots != null && roots.length == trees && holdsPosition(roots, rootState)) {
+            lastPondered = ponderedIterations;
+            return roots;
+        }
+        if (replyCache != null) {
+            if (replyScope == ReplyCache.Scope.GAME) {
+                replyCache.resetStatistics();
+            } else {
+                replyCache.clear();
+            }
+        }
+        roots = reuseTree ? reusableRoots(rootState, trees) : new MCTSNode[trees];
+        if (tables == null || tables.length != trees) {
+            tables = createTables(trees);
+        }
+        for (int index = 0; index < trees; index++) {
+            if (roots[index] != null) {
+                continue;
+            }
+            if (tables[index] != null) {
+                tables[index].clear();
+            }
+            GameState treeState = index == trees - 1 ? rootState : rootState.copy();
+            roots[index] = openLoop
+                    ? MCTSNode.openLoopRoot(treeState, selfProbability, opponentProbability)
+                    : new MCTSNode(treeState, null, null, selfProbability,
+                            opponentProbability, tables[index], selectionMode == Selection.DUCT);
+            roots[index].useReplyCache(replyCache);
+            roots[index].useRolloutArena(rolloutArena);
+            roots[index].useRolloutKernel(rolloutKernel);
+        }
+        return roots;
+    }
+
+    private boolean matchesMode(MCTSNode root) {
+        return root.isOpenLoop() == openLoop
+                && root.isDecoupled() == (!openLoop && selectionMode == Selection.DUCT);
+    }
+
+    private boolean holdsPosition(MCTSNode[] roots, GameState position) {
+        for (MCTSNode root : roots) {
+            if (!root.getState().samePosition(position) || !matchesMode(root)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates one search per worker. Each worker takes its own split random
+     * streams; on a shared tree all workers draw from one iteration budget,
+     * otherwise the limit is divided between them unless a deadline ends the
+     * search. The budgets are added to {@code budgets} when it is given so
+     * that the caller can stop the searches early.
+     */
+    private List<Callable<SearchResult>> searchesFor(MCTSNode[] roots, int workers,
+            boolean sharedTree, int limit, Deadline deadline, LeafRollouts leaves,
+            List<AtomicInteger> budgets) {
+        AtomicInteger sharedBudget = new AtomicInteger(limit);
+        List<Callable<SearchResult>> searches = new ArrayList<>(workers);
+        for (int index = 0; index < workers; index++) {
+            int share = deadline != null ? limit : limit / workers + (index < limit % workers ? 1 : 0);
+            MCTSNode root = roots[sharedTree ? 0 : index];
+            AtomicInteger budget = sharedTree ? sharedBudget : new AtomicInteger(share);
+            if (budgets != null) {
+                budgets.add(budget);
+            }
+            Random selection = workers == 1 ? selectionRandom : SplittableRng.splitFrom(selectionRandom);
+            Random simulation = workers == 1 ? simulationRandom : SplittableRng.splitFrom(simulationRandom);
+            searches.add(() -> search(root, budget, deadline, selection, simulation, sharedTree, leaves));
+        }
+        return searches;
+    }
+
+    private LeafRollouts createLeafRollouts() {
+        if (leafRollouts <= 1) {
+            return null;
+        }
+        return new LeafRollouts(threads > 1 ? rolloutPool() : null, leafRollouts);
+    }
+
+    /**
+     * Indicates whether searches are bounded by time, per move or per game,
+     * rather than by the iteration count.
+     */
+    private boolean isTimed() {
+        return thinkTime != null || timeBudgetMs > 0;
+    }
+
+    /**
+     * Starts searching the given position in the background. With a time
+     * budget the search runs until {@link #stopPondering()} or the next
+     * {@link #chooseMove}, which continues from the pondered tree if the
+     * position is unchanged. In fixed iteration mode pondering also stops
+     * after {@code iterations} iterations, and those count towards the next
+     * search.
+     */
+    @Override
+    public void startPondering(Player self, Player enemy, List<TurnRecord> history) {
+        stopPondering();
+        if (!ponder || self == null || self.getActiveDinosaurView() == null) {
+            return;
+        }
+        GameState rootState = rootStateFor(self, enemy, history);
+        int limit = isTimed() ? Integer.MAX_VALUE : iterations;
+        int workers = Math.max(1, Math.min(threads, limit));
+        boolean sharedTree = workers > 1 && parallelism == Parallelism.TREE;
+        MCTSNode[] roots = rootsFor(rootState, sharedTree ? 1 : workers);
+        List<AtomicInteger> budgets = new ArrayList<>();
+        List<Callable<SearchResult>> searches = searchesFor(roots, workers, sharedTree,
+                limit, null, createLeafRollouts(), budgets);
+        if (ponderExecutor == null) {
+            ponderExecutor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "mcts-ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        ponderRoots = roots;
+        ponderBudgets = budgets;
+        ponderTask = ponderExecutor.submit(() -> runSearches(searches));
+    }
+
+    /**
+     * Stops a background search started by {@link #startPondering} and waits
+     * for it to finish its current iterations.
+     */
+    @Override
+    public void stopPondering() {
+        if (ponderTask == null) {
+            return;
+        }
+        for (AtomicInteger budget : ponderBudgets) {
+            budget.set(0);
+        }
+        ponderedIterations = 0;
+        try {
+            for (SearchResult result : ponderTask.get()) {
+                ponderedIterations += result.iterations;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ponderRoots = null;
+        } catch (ExecutionException e) {
+            ponderRoots = null;
+        } finally {
+            ponderTask = null;
+            ponderBudgets = null;
+        }
+    }
+
+    public boolean isPondering() {
+        return ponderTask != null;
+    }
+
+    /**
+     * Waits until a background search started by {@link #startPondering}
+     * has run all its iterations, without stopping it early. Failures are
+     * left for {@link #stopPondering()} to handle.
+     */
+    public void awaitPondering() throws InterruptedException {
+        Future<List<SearchResult>> task = ponderTask;
+        if (task == null) {
+            return;
+        }
+        try {
+            task.get();
+        } catch (ExecutionException ignored) {
+            // The next search discards the pondered tree.
+        }
+    }
+
+    public void setPonder(boolean ponder) {
+        this.ponder = ponder;
+        if (!ponder) {
+            stopPondering();
+        }
+    }
+
+    /**
+     * Returns the roots of the previous search advanced by one turn: for each
+     * previous tree the child holding the given position, detached from its
+     * parent, or {@code null} where no child matches.
+     */
+    private MCTSNode[] reusableRoots(GameState position, int trees) {
+        MCTSNode[] reused = new MCTSNode[trees];
+        if (previousRoots == null || previousRoots.length != trees) {
+            return reused;
+        }
+        for (int index = 0; index < trees; index++) {
+            MCTSNode child = previousRoots[index].findChild(position);
+            if (child != null && matchesMode(child)) {
+                child.detach();
+                reused[index] = child;
+            }
+        }
+        return reused;
+    }
+
+    private List<SearchResult> runSearches(List<Callable<SearchResult>> searches) {
+        try {
+            if (searches.size() == 1) {
+                return List.of(searches.get(0).call());
+            }
+            if (pool == null || pool.getParallelism() != searches.size()) {
+                if (pool != null) {
+                    pool.shutdown();
+                }
+                pool = new ForkJoinPool(searches.size());
+            }
+            List<SearchResult> results = new ArrayList<>(searches.size());
+            for (Future<SearchResult> future : pool.invokeAll(searches)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("MCTS search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("MCTS search failed", e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException("MCTS search failed", e);
+        }
+    }
+
+    /**
+     * Runs iterations on the calling thread until the budget is used up or
+     * the deadline, if any, has passed after an iteration. On a
+     * tree shared with other threads every node on the path carries a
+     * virtual loss until its result is backed up, and the root children are
+     * left for the caller to report. With leaf rollouts each new leaf is
+     * scored by a whole batch that is backed up at once.
+     */
+    private SearchResult search(MCTSNode root, AtomicInteger budget, Deadline deadline,
+            Random selection, Random simulation, boolean sharedTree, LeafRollouts leaves) {
+        RolloutArena arena = RolloutArena.current();
+        arena.resetStatistics();
+        int completed = 0;
+
+        while (budget.getAndDecrement() > 0) {
+            MCTSNode node = root;
+            if (sharedTree) {
+                node.addVirtualLoss();
+            }
+            if (node.isOpenLoop()) {
+                long start = arena.startRollout();
+                RolloutArena pool = rolloutArena ? arena : null;
+                GameState current = pool == null
+                        ? root.getState().copy()
+                        : pool.prepare(root.getState());
+                while (!current.isTerminal()) {
+                    MCTSNode next = node.selectOpenLoop(current, selection, simulation,
+                            epsilon, pool);
+                    if (next == node) {
+                        break;
+                    }
+                    node = next;
+                    if (sharedTree) {
+                        node.addVirtualLoss();
+                    }
+                    if (node.getVisitCount() == 0) {
+                        break;
+                    }
+                }
+                double result = node.playout(current, simulation, pool);
+                arena.endRollout(start);
+                node.backpropagate(result, sharedTree);
+            } else if (node.isDecoupled()) {
+                while (!node.getState().isTerminal()) {
+                    MCTSNode next = node.selectJoint(selection, simulation, epsilon);
+                    if (next == node) {
+                        break;
+                    }
+                    node = next;
+                    if (sharedTree) {
+                        node.addVirtualLoss();
+                    }
+                    if (node.getVisitCount() == 0) {
+                        break;
+                    }
+                }
+            } else {
+                while (node.isFullyExpanded() && !node.getChildren().isEmpty()) {
+                    node = node.bestChild(selection, epsilon);
+                    if (sharedTree) {
+                        node.addVirtualLoss();
+                    }
+                }
+                if (!node.getState().isTerminal() && !node.isFullyExpanded()) {
+                    MCTSNode expanded = node.expand(selection, simulation);
+                    if (sharedTree && expanded != node) {
+                        expanded.addVirtualLoss();
+                    }
+                    node = expanded;
+                }
+            }
+            if (!root.isOpenLoop()) {
+                if (leaves != null) {
+                    node.backpropagate(leaves.run(node, simulation), sharedTree);
+                } else {
+                    node.backpropagate(node.rollout(simulation), sharedTree);
+                }
+            }
+            completed++;
+            if (deadline != null && deadline.passed()) {
+                break;
+            }
+        }
+        return new SearchResult(sharedTree ? null : root, completed, arena.getRollouts(),
+                arena.getAllocatedBytes());
+    }
+
+    /**
+     * Time limits of one search. Past the soft limit the search stops unless
+     * the think time manager asks to extend it to the hard limit; the first
+     * thread to get there decides for all of them, from the root statistics
+     * summed over every tree of the search.
+     */
+    private static final class Deadline {
+        private final long soft;
+        private final long hard;
+        private final ThinkTimeManager manager;
+        private final MCTSNode[] roots;
+        private volatile Boolean extended;
+
+        private Deadline(long started, long softMs, long hardMs, ThinkTimeManager manager,
+                MCTSNode[] roots) {
+            this.soft = started + softMs * 1_000_000L;
+            this.hard = started + hardMs * 1_000_000L;
+            this.manager = manager;
+            this.roots = roots;
+        }
+
+        private boolean passed() {
+            long now = System.nanoTime();
+            if (now - soft < 0) {
+                return false;
+            }
+            if (now - hard >= 0 || manager == null) {
+                return true;
+            }
+            Boolean decision = extended;
+            if (decision == null) {
+                decision = manager.shouldExtend(rootStatistics());
+                extended = decision;
+            }
+            return !decision;
+        }
+
+        /**
+         * Returns the statistics of each root move summed over the trees.
+         */
+        private List<MoveStatistics> rootStatistics() {
+            Map<String, MoveStatistics> merged = new LinkedHashMap<>();
+            for (MCTSNode root : roots) {
+                for (MoveStatistics move : root.moveStatistics()) {
+                    merged.merge(move.getMove().getName(), move, (total, added) ->
+                            new MoveStatistics(total.getMove(), total.getVisits() + added.getVisits(),
+                                    total.getWins() + added.getWins(),
+                                    total.getScore() + added.getScore()));
+                }
+            }
+            return new ArrayList<>(merged.values());
+        }
+    }
+
+    /**
+     * Root, completed iterations and rollout counters of one search. The root
+     * is {@code null} for workers of a shared tree, which is reported once.
+     */
+    private static final class SearchResult {
+        private final MCTSNode root;
+        private final int iterations;
+        private final long rollouts;
+        private final long allocatedBytes;
+
+        private SearchResult(MCTSNode root, int iterations, long rollouts,
+                long allocatedBytes) {
+            this.root = root;
+            this.iterations = iterations;
+            this.rollouts = rollouts;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    /**
+     * Statistics of one root move summed over all trees.
+     */
+    private static final class RootChoice {
+        private final Move move;
+        private int visits;
+        private int wins;
+        private double winScore;
+
+        private RootChoice(Move move) {
+            this.move = move;
+        }
+
+        private void add(MoveStatistics statistics) {
+            visits += statistics.getVisits();
+            wins += statistics.getWins();
+            winScore += statistics.getScore();
+        }
+    }
+
     /**
      * Returns a summary of statistics for the most recent search.
      */
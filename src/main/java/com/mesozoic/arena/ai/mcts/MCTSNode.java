@@ -7,39 +7,279 @@ import com.mesozoic.arena.util.Config;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Node used by the Monte Carlo Tree Search.
+ * <p>
+ * Nodes may be shared by several searching threads. The state of a node is
+ * never modified once the node has been created, children are published
+ * through a copy-on-write list and untried moves are handed out under the
+ * node's lock.
+ * <p>
+ * With a transposition table a node has two sets of statistics: those of its
+ * position, shared with every node reaching it, and those of the edge from
+ * its parent. Moves are explored and reported by their edge visits, so two
+ * moves leading to the same position are not credited with each other's
+ * visits, while their values still pool every transposed result.
  */
 public class MCTSNode {
-    private static final int MAX_ROLLOUT_STEPS = 100;
+    static final int MAX_ROLLOUT_STEPS = 100;
     private static final double ADVANTAGE_SCALE = 200.0;
+
+    /**
+     * How the minimax part of the rollout policy scores joint actions.
+     */
+    public enum RolloutPolicy {
+        /**
+         * Scores each pair of moves by its expected health swing, see
+         * {@link ExpectedSwing}, without touching the state.
+         */
+        ANALYTIC,
+        /**
+         * Resolves each pair of moves on the state and undoes it again.
+         */
+        SIMULATION;
+
+        /**
+         * Parses a policy name ignoring case, returning {@link #ANALYTIC} if
+         * the value is invalid.
+         */
+        public static RolloutPolicy fromString(String label) {
+            if (label != null) {
+                for (RolloutPolicy policy : values()) {
+                    if (policy.name().equalsIgnoreCase(label.trim())) {
+                        return policy;
+                    }
+                }
+            }
+            return ANALYTIC;
+        }
+    }
+
     private final GameState state;
-    private final MCTSNode parent;
-    private final List<MCTSNode> children = new ArrayList<>();
+    private MCTSNode parent;
+    private final List<MCTSNode> children = new CopyOnWriteArrayList<>();
     private final List<Move> untriedMoves;
     private final Move move;
     private final double selfProbability;
     private final double opponentProbability;
-    private int visitCount;
-    private double winScore;
-    private int winCount;
-    private int drawCount;
+    private final RolloutPolicy rolloutPolicy;
+    private ReplyCache replies;
+    private boolean rolloutArena;
+    private KernelRollouts kernel;
+    private final TranspositionTable table;
+    private final NodeStatistics statistics;
+    private final NodeStatistics edge;
+    private final DecoupledStatistics decoupled;
+    private boolean openLoop;
+    private int selfIndex;
+    private int opponentIndex;
 
     public MCTSNode(GameState state, MCTSNode parent, Move move,
             double selfMinimaxProbability, double opponentMinimaxProbability) {
+        this(state, parent, move, selfMinimaxProbability, opponentMinimaxProbability, null);
+    }
+
+    /**
+     * Creates a node whose statistics are shared through the given
+     * transposition table with every other node reaching the same position.
+     *
+     * @param table the table to share statistics through, or {@code null}
+     *              to keep them private to this node
+     */
+    public MCTSNode(GameState state, MCTSNode parent, Move move,
+            double selfMinimaxProbability, double opponentMinimaxProbability,
+            TranspositionTable table) {
+        this(state, parent, move, selfMinimaxProbability, opponentMinimaxProbability, table, false);
+    }
+
+    /**
+     * Creates a node that, when {@code decoupled} is set, keeps separate move
+     * statistics for both players and is searched with
+     * {@link #selectJoint(Random, Random, double)} instead of
+     * {@link #expand(Random, Random)} and {@link #bestChild(Random, double)}.
+     */
+    public MCTSNode(GameState state, MCTSNode parent, Move move,
+            double selfMinimaxProbability, double opponentMinimaxProbability,
+            TranspositionTable table, boolean decoupled) {
+        this.table = table;
+        this.statistics = table == null ? new NodeStatistics() : table.statisticsFor(state);
+        this.edge = table == null ? statistics : new NodeStatistics();
         this.state = state;
         this.parent = parent;
         this.move = move;
         this.selfProbability = selfMinimaxProbability;
         this.opponentProbability = opponentMinimaxProbability;
+        this.rolloutPolicy = parent != null ? parent.rolloutPolicy
+                : RolloutPolicy.fromString(Config.mctsRolloutPolicy());
+        this.replies = parent != null ? parent.replies : null;
+        this.rolloutArena = parent != null ? parent.rolloutArena : Config.mctsRolloutArena();
+        this.kernel = parent != null ? parent.kernel : null;
         this.untriedMoves = new ArrayList<>(state.availableMovesFor(state.getPlayerTwo()));
+        this.decoupled = decoupled
+                ? new DecoupledStatistics(List.copyOf(untriedMoves),
+                        state.availableMovesFor(state.getPlayerOne()))
+                : null;
+        if (parent == null) {
+            useRolloutKernel(Config.mctsRolloutKernel());
+        }
+    }
+
+    /**
+     * Creates the root of an open-loop tree. Only the root holds a state;
+     * the nodes below it store just their move and statistics, and the
+     * position is replayed from the root on every descent.
+     */
+    public static MCTSNode openLoopRoot(GameState state, double selfMinimaxProbability,
+            double opponentMinimaxProbability) {
+        MCTSNode root = new MCTSNode(state, null, null, selfMinimaxProbability,
+                opponentMinimaxProbability, null, false);
+        root.openLoop = true;
+        return root;
     }
 
+    private MCTSNode(MCTSNode parent, Move move) {
+        this.table = null;
+        this.statistics = new NodeStatistics();
+        this.edge = statistics;
+        this.state = null;
+        this.parent = parent;
+        this.move = move;
+        this.selfProbability = parent.selfProbability;
+        this.opponentProbability = parent.opponentProbability;
+        this.rolloutPolicy = parent.rolloutPolicy;
+        this.replies = parent.replies;
+        this.rolloutArena = parent.rolloutArena;
+        this.kernel = parent.kernel;
+        this.untriedMoves = List.of();
+        this.decoupled = null;
+        this.openLoop = true;
+    }
+
+    /**
+     * Returns the state of this node, which is {@code null} below the root
+     * of an open-loop tree.
+     */
     public GameState getState() {
         return state;
     }
 
+    /**
+     * Lets the rollout policy of this node, and of every node created below
+     * it from now on, look up and store its minimax replies in the cache.
+     * Only the ANALYTIC policy uses it, as its replies depend on the position
+     * alone; SIMULATION replies are drawn at random, and caching one draw
+     * would repeat it and make the search depend on thread timing.
+     */
+    void useReplyCache(ReplyCache replies) {
+        this.replies = rolloutPolicy == RolloutPolicy.ANALYTIC ? replies : null;
+    }
+
+    /**
+     * Sets whether rollouts from this node, and from every node created
+     * below it from now on, run in the calling thread's {@link RolloutArena}.
+     */
+    void useRolloutArena(boolean rolloutArena) {
+        this.rolloutArena = rolloutArena;
+    }
+
+    /**
+     * Sets whether SIMULATION rollouts from this node, and from every node
+     * created below it from now on, are played on a {@link KernelRollouts}
+     * built for the rosters of this node. ANALYTIC rollouts always play on
+     * the game state, as {@link ExpectedSwing} reads the dinosaurs directly.
+     */
+    void useRolloutKernel(boolean enabled) {
+        if (!enabled || rolloutPolicy != RolloutPolicy.SIMULATION) {
+            kernel = null;
+        } else if (kernel == null) {
+            kernel = new KernelRollouts(state);
+        }
+    }
+
+    public boolean isOpenLoop() {
+        return openLoop;
+    }
+
+    /**
+     * Open-loop descent step. Chooses a move for player two among the moves
+     * legal in {@code current}, the sampled state at this node, trying
+     * unvisited moves first and then by UCB1. The opponent reply is drawn
+     * from the rollout policy on every descent, and {@code current} is
+     * advanced in place. Returns the child for the chosen move, creating it
+     * if needed, or this node if player two has no moves.
+     */
+    MCTSNode selectOpenLoop(GameState current, Random selectionRandom, Random simulationRandom,
+            double epsilon, RolloutArena arena) {
+        List<Move> moves = movesFor(current, current.getPlayerTwo(), arena, true);
+        if (moves.isEmpty()) {
+            return this;
+        }
+        Move chosen;
+        if (epsilon > 0 && selectionRandom.nextDouble() < epsilon) {
+            chosen = moves.get(selectionRandom.nextInt(moves.size()));
+        } else {
+            chosen = chooseOpenLoopMove(moves, selectionRandom);
+        }
+        Move opponentMove = chooseOpponentMove(current, simulationRandom, arena);
+        current.advance(opponentMove, chosen, simulationRandom);
+        synchronized (children) {
+            MCTSNode child = childFor(chosen);
+            if (child == null) {
+                child = new MCTSNode(this, chosen);
+                children.add(child);
+            }
+            return child;
+        }
+    }
+
+    private Move chooseOpenLoopMove(List<Move> moves, Random random) {
+        int untried = 0;
+        for (int index = 0; index < moves.size(); index++) {
+            MCTSNode child = childFor(moves.get(index));
+            if (child == null || child.getVisitCount() == 0) {
+                untried++;
+            }
+        }
+        if (untried > 0) {
+            int pick = random.nextInt(untried);
+            for (int index = 0; index < moves.size(); index++) {
+                MCTSNode child = childFor(moves.get(index));
+                if ((child == null || child.getVisitCount() == 0) && pick-- == 0) {
+                    return moves.get(index);
+                }
+            }
+        }
+        double exploration = Config.mctsExploration();
+        int visitCount = edge.getVisitCount() + edge.getVirtualLosses();
+        Move best = moves.get(0);
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int index = 0; index < moves.size(); index++) {
+            MCTSNode child = childFor(moves.get(index));
+            int pending = child.edge.getVirtualLosses();
+            int childVisits = child.edge.getVisitCount() + pending;
+            double score = child.edge.getWinScore() + pending * NodeStatistics.VIRTUAL_LOSS;
+            double value = score / childVisits
+                    + exploration * Math.sqrt(Math.log(visitCount + 1) / childVisits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = moves.get(index);
+            }
+        }
+        return best;
+    }
+
+    private MCTSNode childFor(Move candidate) {
+        for (int index = 0; index < children.size(); index++) {
+            MCTSNode child = children.get(index);
+            if (child.move.getName().equals(candidate.getName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
     public Move getMove() {
         return move;
     }
@@ -48,28 +288,97 @@ public class MCTSNode {
         return children;
     }
 
+    /**
+     * Returns the child whose state holds the same position as the given
+     * state, or {@code null} if no child does.
+     */
+    MCTSNode findChild(GameState position) {
+        for (MCTSNode child : children) {
+            if (child.state != null && child.state.samePosition(position)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cuts this node off its parent so that it can serve as a new root.
+     * Must not be called while the tree is being searched.
+     */
+    void detach() {
+        parent = null;
+    }
+
+    /**
+     * Returns the visits that passed through this node from its parent,
+     * which exclude those of transposed nodes sharing its position.
+     */
     public int getVisitCount() {
-        return visitCount;
+        return edge.getVisitCount();
     }
 
     public double getWinScore() {
-        return winScore;
+        return edge.getWinScore();
+    }
+
+    /**
+     * Returns the visits of this node's position, which include those of
+     * every transposed node sharing it through the table.
+     */
+    public int getPositionVisitCount() {
+        return statistics.getVisitCount();
+    }
+
+    public double getPositionWinScore() {
+        return statistics.getWinScore();
     }
 
     public int getWinCount() {
-        return winCount;
+        return edge.getWinCount();
     }
 
     public int getDrawCount() {
-        return drawCount;
+        return edge.getDrawCount();
     }
 
-    public boolean isFullyExpanded() {
+    public synchronized boolean isFullyExpanded() {
         return untriedMoves.isEmpty();
     }
 
-    private Move randomMove(Player player, Random random) {
-        List<Move> moves = state.availableMovesFor(player);
+    /**
+     * Marks a pending descent through this node, see {@link NodeStatistics}.
+     */
+    public void addVirtualLoss() {
+        statistics.addVirtualLoss();
+        if (edge != statistics) {
+            edge.addVirtualLoss();
+        }
+        if (parent != null && parent.decoupled != null) {
+            parent.decoupled.addVirtualLoss(selfIndex, opponentIndex);
+        }
+    }
+
+    private void removeVirtualLoss() {
+        statistics.removeVirtualLoss();
+        if (edge != statistics) {
+            edge.removeVirtualLoss();
+        }
+        if (parent != null && parent.decoupled != null) {
+            parent.decoupled.removeVirtualLoss(selfIndex, opponentIndex);
+        }
+    }
+
+    private static List<Move> movesFor(GameState gameState, Player player, RolloutArena arena,
+            boolean first) {
+        if (arena == null) {
+            return gameState.availableMovesFor(player);
+        }
+        return arena.movesFor(gameState, player, first);
+    }
+
+    private static Move randomMove(GameState gameState, Player player, Random random,
+            RolloutArena arena) {
+        List<Move> moves = movesFor(gameState, player, arena, true);
         if (moves.isEmpty()) {
             return null;
         }
@@ -89,9 +398,7 @@ public class MCTSNode {
         return p1Health - p2Health;
     }
 
-    private static double evaluateAdvantage(GameState gameState) {
-        int p1Health = gameState.getPlayerOne().getTotalHealth();
-        int p2Health = gameState.getPlayerTwo().getTotalHealth();
+    private static double evaluateAdvantage(int p1Health, int p2Health) {
         double advantage = (double) (p2Health - p1Health) / ADVANTAGE_SCALE;
         if (advantage > 0.5) {
             return 0.5;
@@ -102,32 +409,55 @@ public class MCTSNode {
         return advantage;
     }
 
-    private Move minimaxMove(Random random) {
-        return minimaxMove(state, random, true);
-    }
-
-    private Move minimaxMove(GameState currentState, Random random, boolean forPlayerOne) {
+    private static Move minimaxMove(GameState currentState, Random random, boolean forPlayerOne,
+            RolloutArena arena, RolloutPolicy policy, ReplyCache replies) {
         Player maximizer = forPlayerOne ? currentState.getPlayerOne() : currentState.getPlayerTwo();
         Player minimizer = forPlayerOne ? currentState.getPlayerTwo() : currentState.getPlayerOne();
 
-        List<Move> maxMoves = currentState.availableMovesFor(maximizer);
+        List<Move> maxMoves = movesFor(currentState, maximizer, arena, true);
         if (maxMoves.isEmpty()) {
             return null;
         }
-        List<Move> minMoves = currentState.availableMovesFor(minimizer);
+        List<Move> minMoves = movesFor(currentState, minimizer, arena, false);
         if (minMoves.isEmpty()) {
             return maxMoves.get(random.nextInt(maxMoves.size()));
         }
+        long key = 0L;
+        if (replies != null) {
+            key = ReplyCache.key(currentState, forPlayerOne);
+            int cached = replies.replyFor(key);
+            if (cached >= 0 && cached < maxMoves.size()) {
+                return maxMoves.get(cached);
+            }
+        }
+        int bestIndex = policy == RolloutPolicy.ANALYTIC
+                ? ExpectedSwing.bestIndex(currentState, forPlayerOne, maxMoves, minMoves)
+                : simulatedBestIndex(currentState, random, forPlayerOne, maxMoves, minMoves);
+        if (bestIndex < 0) {
+            return maxMoves.get(random.nextInt(maxMoves.size()));
+        }
+        if (replies != null) {
+            replies.store(key, bestIndex);
+        }
+        return maxMoves.get(bestIndex);
+    }
 
-        Move bestMove = null;
+    private static int simulatedBestIndex(GameState currentState, Random random,
+            boolean forPlayerOne, List<Move> maxMoves, List<Move> minMoves) {
+        int bestIndex = -1;
         int bestValue = Integer.MIN_VALUE;
-        for (Move maxMove : maxMoves) {
+        for (int maxIndex = 0; maxIndex < maxMoves.size(); maxIndex++) {
+            Move maxMove = maxMoves.get(maxIndex);
             int worstValue = Integer.MAX_VALUE;
-            for (Move minMove : minMoves) {
-                GameState next = forPlayerOne
-                        ? currentState.nextState(maxMove, minMove, random)
-                        : currentState.nextState(minMove, maxMove, random);
-                int value = evaluateState(next);
+            for (int minIndex = 0; minIndex < minMoves.size(); minIndex++) {
+                Move minMove = minMoves.get(minIndex);
+                if (forPlayerOne) {
+                    currentState.apply(maxMove, minMove, random);
+                } else {
+                    currentState.apply(minMove, maxMove, random);
+                }
+                int value = evaluateState(currentState);
+                currentState.undo();
                 if (!forPlayerOne) {
                     value = -value;
                 }
@@ -137,42 +467,122 @@ public class MCTSNode {
             }
             if (worstValue > bestValue) {
                 bestValue = worstValue;
-                bestMove = maxMove;
+                bestIndex = maxIndex;
             }
         }
-
-        if (bestMove == null) {
-            return maxMoves.get(random.nextInt(maxMoves.size()));
-        }
-        return bestMove;
+        return bestIndex;
     }
 
-    private Move chooseSelfMove(GameState currentState, Random random) {
+    private Move chooseSelfMove(GameState currentState, Random random, RolloutArena arena) {
         if (random.nextDouble() < selfProbability) {
-            return minimaxMove(currentState, random, false);
+            return minimaxMove(currentState, random, false, arena, rolloutPolicy, replies);
         }
-        return randomMove(currentState.getPlayerTwo(), random);
+        return randomMove(currentState, currentState.getPlayerTwo(), random, arena);
     }
 
-    private Move chooseOpponentMove(GameState currentState, Random random) {
+    private Move chooseOpponentMove(GameState currentState, Random random, RolloutArena arena) {
         if (random.nextDouble() < opponentProbability) {
-            return minimaxMove(currentState, random, true);
+            return minimaxMove(currentState, random, true, arena, rolloutPolicy, replies);
         }
-        return randomMove(currentState.getPlayerOne(), random);
+        return randomMove(currentState, currentState.getPlayerOne(), random, arena);
     }
 
-    public MCTSNode expand(Random selectionRandom, Random simulationRandom) {
+    /**
+     * Adds a child for one untried move, or returns this node if another
+     * thread has taken the last one. The opponent's reply is searched on a
+     * copy of the state, which then becomes the child's state. The child is
+     * added under the node's lock, so a node only counts as fully expanded
+     * once all its children can be selected.
+     */
+    public synchronized MCTSNode expand(Random selectionRandom, Random simulationRandom) {
         if (untriedMoves.isEmpty()) {
             return this;
         }
         Move chosenMove = untriedMoves.remove(selectionRandom.nextInt(untriedMoves.size()));
-        Move opponentMove = chooseOpponentMove(state, simulationRandom);
-        GameState nextState = state.nextState(opponentMove, chosenMove, simulationRandom);
-        MCTSNode child = new MCTSNode(nextState, this, chosenMove, selfProbability, opponentProbability);
+        GameState nextState = state.copy();
+        Move opponentMove = chooseOpponentMove(nextState, simulationRandom, null);
+        nextState.advance(opponentMove, chosenMove, simulationRandom);
+        MCTSNode child = new MCTSNode(nextState, this, chosenMove, selfProbability,
+                opponentProbability, table);
         children.add(child);
         return child;
     }
 
+    public boolean isDecoupled() {
+        return decoupled != null;
+    }
+
+    /**
+     * Returns the statistics of player two's moves at this node, taken from
+     * the node's own move statistics when decoupled and from the children
+     * otherwise.
+     */
+    List<MoveStatistics> moveStatistics() {
+        if (decoupled != null) {
+            return decoupled.selfStatistics();
+        }
+        List<MoveStatistics> statistics = new ArrayList<>(children.size());
+        for (MCTSNode child : children) {
+            statistics.add(new MoveStatistics(child.move, child.getVisitCount(),
+                    child.getWinCount(), child.getWinScore()));
+        }
+        return statistics;
+    }
+
+    /**
+     * Picks a move for each player from its own statistics and returns the
+     * child for that joint action, creating it the first time it is chosen.
+     * Returns this node if player two has no moves.
+     */
+    public MCTSNode selectJoint(Random selectionRandom, Random simulationRandom, double epsilon) {
+        if (decoupled == null || decoupled.isEmpty()) {
+            return this;
+        }
+        double exploration = Config.mctsExploration();
+        int self = decoupled.chooseSelf(selectionRandom, epsilon, exploration);
+        int opponent = decoupled.chooseOpponent(selectionRandom, epsilon, exploration);
+        synchronized (decoupled) {
+            MCTSNode child = decoupled.child(self, opponent);
+            if (child == null) {
+                GameState nextState = state.copy();
+                nextState.advance(decoupled.opponentMove(opponent), decoupled.selfMove(self),
+                        simulationRandom);
+                child = new MCTSNode(nextState, this, decoupled.selfMove(self), selfProbability,
+                        opponentProbability, table, true);
+                child.selfIndex = self;
+                child.opponentIndex = opponent;
+                decoupled.setChild(self, opponent, child);
+                children.add(child);
+            }
+            return child;
+        }
+    }
+
+    private void record(double result) {
+        statistics.update(result);
+        if (edge != statistics) {
+            edge.update(result);
+        }
+        if (parent != null && parent.decoupled != null) {
+            parent.decoupled.record(selfIndex, opponentIndex, result);
+        }
+    }
+
+    /**
+     * Returns the average score of this node's position, which pools the
+     * results of every transposed node, counting pending virtual losses.
+     */
+    private double positionValue() {
+        int pending = statistics.getVirtualLosses();
+        int visits = statistics.getVisitCount() + pending;
+        double score = statistics.getWinScore() + pending * NodeStatistics.VIRTUAL_LOSS;
+        return score / (visits + 1e-6);
+    }
+
+    /**
+     * Picks a child by UCT. The exploitation term is the value of the child's
+     * position and the exploration term counts the visits of its edge.
+     */
     public MCTSNode bestChild(Random random, double epsilon) {
         if (random != null && epsilon > 0 && !children.isEmpty()
                 && random.nextDouble() < epsilon) {
@@ -181,10 +591,12 @@ public class MCTSNode {
         double exploration = Config.mctsExploration();
         MCTSNode best = null;
         double bestValue = Double.NEGATIVE_INFINITY;
+        int visitCount = edge.getVisitCount() + edge.getVirtualLosses();
         for (MCTSNode child : children) {
-            double exploitation = child.winScore / (child.visitCount + 1e-6);
+            int childVisits = child.edge.getVisitCount() + child.edge.getVirtualLosses();
+            double exploitation = child.positionValue();
             double exploreTerm = Math.sqrt(Math.log(visitCount + 1)
-                    / (child.visitCount + 1e-6));
+                    / (childVisits + 1e-6));
             double uctValue = exploitation + exploration * exploreTerm;
             if (uctValue > bestValue) {
                 bestValue = uctValue;
@@ -198,17 +610,56 @@ public class MCTSNode {
         return bestChild(null, 0.0);
     }
 
+    /**
+     * Plays the game out from this node and scores the result for player
+     * two. Unless disabled for this node the rollout runs in the calling
+     * thread's {@link RolloutArena}, and on the battle kernel if enabled.
+     */
     public double rollout(Random simulationRandom) {
-        GameState current = state;
+        RolloutArena arena = RolloutArena.current();
+        long start = arena.startRollout();
+        RolloutArena pool = rolloutArena ? arena : null;
+        double result;
+        if (kernel != null) {
+            result = kernel.playout(state, simulationRandom, selfProbability,
+                    opponentProbability, pool);
+        } else {
+            GameState current = pool == null ? state.copy() : pool.prepare(state);
+            result = playout(current, simulationRandom, pool);
+        }
+        arena.endRollout(start);
+        return result;
+    }
+
+    /**
+     * Plays the given state out in place with the rollout policy and scores
+     * the result for player two.
+     *
+     * @param pool the arena whose move buffers to use, or {@code null}
+     */
+    double playout(GameState current, Random simulationRandom, RolloutArena pool) {
+        if (kernel != null) {
+            return kernel.playout(current, simulationRandom, selfProbability,
+                    opponentProbability, pool);
+        }
         int steps = 0;
         while (!current.isTerminal() && steps < MAX_ROLLOUT_STEPS) {
-            Move ourMove = chooseSelfMove(current, simulationRandom);
-            Move opponentMove = chooseOpponentMove(current, simulationRandom);
-            current = current.nextState(opponentMove, ourMove, simulationRandom);
+            Move ourMove = chooseSelfMove(current, simulationRandom, pool);
+            Move opponentMove = chooseOpponentMove(current, simulationRandom, pool);
+            current.advance(opponentMove, ourMove, simulationRandom);
             steps++;
         }
-        int winner = current.winner();
-        double advantage = evaluateAdvantage(current);
+        return score(current.winner(), current.getPlayerOne().getTotalHealth(),
+                current.getPlayerTwo().getTotalHealth(), steps);
+    }
+
+    /**
+     * Scores the end of a rollout for player two from the winner (1 for
+     * player one, -1 for player two, 0 if undecided), the remaining health
+     * of both players and the number of rounds played.
+     */
+    static double score(int winner, int p1Health, int p2Health, int steps) {
+        double advantage = evaluateAdvantage(p1Health, p2Health);
         if (winner == -1) {
             double healthBonus = Math.max(0.0, advantage) * 0.5;
             double stepBonus = 0.25 * (1.0 - steps / (double) MAX_ROLLOUT_STEPS);
@@ -221,14 +672,36 @@ public class MCTSNode {
     }
 
     public void backpropagate(double result) {
+        backpropagate(result, false);
+    }
+
+    /**
+     * Records the result on this node and its ancestors, optionally removing
+     * the virtual loss each of them received on the way down.
+     */
+    public void backpropagate(double result, boolean removeVirtualLoss) {
         MCTSNode node = this;
         while (node != null) {
-            node.visitCount++;
-            node.winScore += result;
-            if (result > 0) {
-                node.winCount++;
-            } else if (result == 0) {
-                node.drawCount++;
+            node.record(result);
+            if (removeVirtualLoss) {
+                node.removeVirtualLoss();
+            }
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Records a batch of rollout results from this node in one pass up the
+     * tree. The virtual loss, if requested, is removed once per node.
+     */
+    public void backpropagate(double[] results, boolean removeVirtualLoss) {
+        MCTSNode node = this;
+        while (node != null) {
+            for (double result : results) {
+                node.record(result);
+            }
+            if (removeVirtualLoss) {
+                node.removeVirtualLoss();
             }
             node = node.parent;
         }
@@ -0,0 +1,36 @@
+package com.mesozoic.arena.ai.mcts;
+
+import com.mesozoic.arena.model.Move;
+
+/**
+ * Snapshot of the visits, wins and total score of one move at a node.
+ */
+final class MoveStatistics {
+    private final Move move;
+    private final int visits;
+    private final int wins;
+    private final double score;
+
+    MoveStatistics(Move move, int visits, int wins, double score) {
+        this.move = move;
+        this.visits = visits;
+        this.wins = wins;
+        this.score = score;
+    }
+
+    Move getMove() {
+        return move;
+    }
+
+    int getVisits() {
+        return visits;
+    }
+
+    int getWins() {
+        return wins;
+    }
+
+    double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,88 @@
+package com.mesozoic.arena.ai.mcts;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Visit and score totals of a search node. Nodes that reach the same position
+ * through a {@link TranspositionTable} share one instance.
+ * <p>
+ * The counters are atomic so that several threads can search one tree. A
+ * thread descending through a node adds a virtual loss, which counts as a
+ * visit with a losing result until the thread backs up its real result, so
+ * that concurrent descents are spread over different paths.
+ * <p>
+ * The counters are plain volatile fields updated through {@link VarHandle}s
+ * rather than atomic wrapper objects, as one instance is kept per table entry
+ * and per node and the wrappers would multiply its size.
+ */
+final class NodeStatistics {
+    /** Result counted for each pending virtual loss. */
+    static final double VIRTUAL_LOSS = -1.0;
+
+    private static final VarHandle VISIT_COUNT;
+    private static final VarHandle WIN_SCORE;
+    private static final VarHandle WIN_COUNT;
+    private static final VarHandle DRAW_COUNT;
+    private static final VarHandle VIRTUAL_LOSSES;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            VISIT_COUNT = lookup.findVarHandle(NodeStatistics.class, "visitCount", int.class);
+            WIN_SCORE = lookup.findVarHandle(NodeStatistics.class, "winScore", double.class);
+            WIN_COUNT = lookup.findVarHandle(NodeStatistics.class, "winCount", int.class);
+            DRAW_COUNT = lookup.findVarHandle(NodeStatistics.class, "drawCount", int.class);
+            VIRTUAL_LOSSES = lookup.findVarHandle(NodeStatistics.class, "virtualLosses", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile int visitCount;
+    private volatile double winScore;
+    private volatile int winCount;
+    private volatile int drawCount;
+    private volatile int virtualLosses;
+
+    int getVisitCount() {
+        return visitCount;
+    }
+
+    double getWinScore() {
+        return winScore;
+    }
+
+    int getWinCount() {
+        return winCount;
+    }
+
+    int getDrawCount() {
+        return drawCount;
+    }
+
+    int getVirtualLosses() {
+        return virtualLosses;
+    }
+
+    void addVirtualLoss() {
+        VIRTUAL_LOSSES.getAndAdd(this, 1);
+    }
+
+    void removeVirtualLoss() {
+        VIRTUAL_LOSSES.getAndAdd(this, -1);
+    }
+
+    /**
+     * Records the result of one rollout passing through the node.
+     */
+    void update(double result) {
+        VISIT_COUNT.getAndAdd(this, 1);
+        WIN_SCORE.getAndAdd(this, result);
+        if (result > 0) {
+            WIN_COUNT.getAndAdd(this, 1);
+        } else if (result == 0) {
+            DRAW_COUNT.getAndAdd(this, 1);
+        }
+    }
+}
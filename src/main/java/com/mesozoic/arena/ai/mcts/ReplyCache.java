@@ -0,0 +1,324 @@
+package com.mesozoic.arena.ai.mcts;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe, bounded memo of the rollout policy's minimax replies.
+ * <p>
+ * Rollouts keep reaching the same positions, and the minimax part of the
+ * policy would score the full move matrix again every time. The cache maps a
+ * position key, see {@link #key(GameState, boolean)}, to the index of the
+ * chosen move in that side's move list, which is the same for every state
+ * holding the position. Storing the index instead of the move keeps entries
+ * valid across copies of the state and rollout arenas.
+ * <p>
+ * Entries are spread over segments, each guarded by its own lock and evicting
+ * its least recently used entry when full.
+ */
+public final class ReplyCache {
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_ENTRIES = 64;
+    private static final long PLAYER_ONE_KEY = 0x9E3779B97F4A7C15L;
+    private static final long BRACE_ONE_KEY = 0xBF58476D1CE4E5B9L;
+    private static final long BRACE_TWO_KEY = 0x94D049BB133111EBL;
+
+    /**
+     * How long cached replies are kept.
+     */
+    public enum Scope {
+        /** Cleared at the start of every search. */
+        SEARCH,
+        /** Kept for the lifetime of the agent, which plays one game. */
+        GAME;
+
+        /**
+         * Parses a scope name ignoring case, returning {@link #SEARCH} if the
+         * value is invalid.
+         */
+        public static Scope fromString(String label) {
+            if (label != null) {
+                for (Scope scope : values()) {
+                    if (scope.name().equalsIgnoreCase(label.trim())) {
+                        return scope;
+                    }
+                }
+            }
+            return SEARCH;
+        }
+    }
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding up to roughly {@code capacity} replies.
+     */
+    public ReplyCache(int capacity) {
+        int entries = Math.max(1, capacity);
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, entries / MIN_SEGMENT_ENTRIES)));
+        this.segments = new Segment[count];
+        for (int index = 0; index < count; index++) {
+            segments[index] = new Segment(Math.max(1, entries / count));
+        }
+        this.segmentMask = count - 1;
+    }
+
+    /**
+     * Returns the key of the reply chosen for player one or player two in
+     * the given position. Besides the position hash it covers the brace
+     * flags of the last turn, which decide whether Brace can be used again.
+     */
+    public static long key(GameState state, boolean forPlayerOne) {
+        long key = state.hash();
+        if (forPlayerOne) {
+            key ^= PLAYER_ONE_KEY;
+        }
+        if (state.lastActionWasBrace(state.getPlayerOne())) {
+            key ^= BRACE_ONE_KEY;
+        }
+        if (state.lastActionWasBrace(state.getPlayerTwo())) {
+            key ^= BRACE_TWO_KEY;
+        }
+        return key;
+    }
+
+    /**
+     * Returns the cached move index for the key, or -1 on a miss.
+     */
+    public int replyFor(long key) {
+        int reply = segmentFor(key).get(key);
+        if (reply < 0) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return reply;
+    }
+
+    /**
+     * Stores the move index chosen for the key, evicting the least recently
+     * used entry of its segment if that is full.
+     */
+    public void store(long key, int reply) {
+        if (segmentFor(key).put(key, reply)) {
+            evictions.increment();
+        }
+    }
+
+    private Segment segmentFor(long key) {
+        return segments[(int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & segmentMask];
+    }
+
+    public int getCapacity() {
+        int capacity = 0;
+        for (Segment segment : segments) {
+            capacity += segment.capacity;
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns the number of replies currently cached.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache, or 0 when no
+     * lookups have been made.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Resets the counters but keeps the cached replies.
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        resetStatistics();
+    }
+
+    /**
+     * Returns a one line summary of the cache usage.
+     */
+    public String describe() {
+        return String.format("Reply cache: %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                getHits(), getMisses(), getHitRate() * 100.0, getEvictions());
+    }
+
+    /**
+     * Fixed-size LRU map from keys to replies. Entries live in parallel
+     * arrays, chained per hash bucket and linked from most to least recently
+     * used, so lookups and evictions allocate nothing.
+     */
+    private static final class Segment {
+        private final int capacity;
+        private final long[] keys;
+        private final int[] replies;
+        private final int[] chain;
+        private final int[] newer;
+        private final int[] older;
+        private final int[] buckets;
+        private final int bucketMask;
+        private int size;
+        private int newest = -1;
+        private int oldest = -1;
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+            this.keys = new long[capacity];
+            this.replies = new int[capacity];
+            this.chain = new int[capacity];
+            this.newer = new int[capacity];
+            this.older = new int[capacity];
+            int bucketCount = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+            this.buckets = new int[bucketCount];
+            this.bucketMask = bucketCount - 1;
+            Arrays.fill(buckets, -1);
+        }
+
+        private synchronized int get(long key) {
+            int entry = find(key);
+            if (entry < 0) {
+                return -1;
+            }
+            touch(entry);
+            return replies[entry];
+        }
+
+        /**
+         * Stores the reply and returns whether an entry was evicted for it.
+         */
+        private synchronized boolean put(long key, int reply) {
+            int entry = find(key);
+            if (entry >= 0) {
+                replies[entry] = reply;
+                touch(entry);
+                return false;
+            }
+            boolean evicted = false;
+            if (size < capacity) {
+                entry = size++;
+            } else {
+                entry = oldest;
+                unlink(entry);
+                removeFromBucket(entry);
+                evicted = true;
+            }
+            int bucket = bucket(key);
+            keys[entry] = key;
+            replies[entry] = reply;
+            chain[entry] = buckets[bucket];
+            buckets[bucket] = entry;
+            linkNewest(entry);
+            return evicted;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private synchronized void clear() {
+            Arrays.fill(buckets, -1);
+            size = 0;
+            newest = -1;
+            oldest = -1;
+        }
+
+        private int bucket(long key) {
+            long mixed = key ^ (key >>> 32);
+            return (int) mixed & bucketMask;
+        }
+
+        private int find(long key) {
+            for (int entry = buckets[bucket(key)]; entry >= 0; entry = chain[entry]) {
+                if (keys[entry] == key) {
+                    return entry;
+                }
+            }
+            return -1;
+        }
+
+        private void removeFromBucket(int entry) {
+            int bucket = bucket(keys[entry]);
+            int current = buckets[bucket];
+            if (current == entry) {
+                buckets[bucket] = chain[entry];
+                return;
+            }
+            while (chain[current] != entry) {
+                current = chain[current];
+            }
+            chain[current] = chain[entry];
+        }
+
+        private void touch(int entry) {
+            if (entry != newest) {
+                unlink(entry);
+                linkNewest(entry);
+            }
+        }
+
+        private void unlink(int entry) {
+            int before = newer[entry];
+            int after = older[entry];
+            if (before >= 0) {
+                older[before] = after;
+            } else {
+                newest = after;
+            }
+            if (after >= 0) {
+                newer[after] = before;
+            } else {
+                oldest = before;
+            }
+        }
+
+        private void linkNewest(int entry) {
+            newer[entry] = -1;
+            older[entry] = newest;
+            if (newest >= 0) {
+                newer[newest] = entry;
+            }
+            newest = entry;
+            if (oldest < 0) {
+                oldest = entry;
+            }
+        }
+    }
+}
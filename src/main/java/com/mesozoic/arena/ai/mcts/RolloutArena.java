@@ -0,0 +1,184 @@
+package com.mesozoic.arena.ai.mcts;
+
+import com.mesozoic.arena.engine.PackedBattleState;
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.Player;
+import com.mesozoic.arena.model.SwitchMove;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-thread scratch space for rollouts.
+ * <p>
+ * Instead of copying the node's state for every rollout, the arena keeps one
+ * scratch {@link GameState} and overwrites it with the node's position, which
+ * recycles its players, dinosaurs and battle. Move lists are collected into
+ * reusable buffers and switch moves are cached per roster slot. Rollouts on
+ * the battle kernel likewise reuse a scratch packed position and action
+ * buffers.
+ * <p>
+ * The arena also counts the rollouts played on its thread and, where the JVM
+ * supports it, the bytes they allocated.
+ */
+final class RolloutArena {
+    private static final ThreadLocal<RolloutArena> ARENAS = ThreadLocal.withInitial(RolloutArena::new);
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private GameState scratch;
+    private final List<Move> firstMoves = new ArrayList<>();
+    private final List<Move> secondMoves = new ArrayList<>();
+    private final SwitchMove[][] switchMoves = {new SwitchMove[4], new SwitchMove[4]};
+    private final int[][] switchTargets = {new int[4], new int[4]};
+    private PackedBattleState probe;
+    private final int[][] actions = {new int[0], new int[0]};
+    private long rollouts;
+    private long allocatedBytes;
+
+    /**
+     * Returns the arena of the calling thread.
+     */
+    static RolloutArena current() {
+        return ARENAS.get();
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the scratch state overwritten with the position of the given
+     * state. The previous contents of the scratch state are discarded.
+     */
+    GameState prepare(GameState source) {
+        if (scratch == null) {
+            scratch = source.copy();
+        } else {
+            scratch.resetFrom(source);
+        }
+        return scratch;
+    }
+
+    /**
+     * Returns the scratch packed position overwritten with the given one.
+     */
+    PackedBattleState probe(PackedBattleState source) {
+        if (probe == null || probe.getSlotsPerSide() != source.getSlotsPerSide()) {
+            probe = source.copy();
+        } else {
+            probe.copyFrom(source);
+        }
+        return probe;
+    }
+
+    /**
+     * Returns the first or second reusable action buffer, holding at least
+     * the given number of actions.
+     */
+    int[] actions(int buffer, int capacity) {
+        if (actions[buffer].length < capacity) {
+            actions[buffer] = new int[capacity];
+        }
+        return actions[buffer];
+    }
+
+    /**
+     * Returns the first or second reusable move buffer filled with the moves
+     * available to the given player.
+     */
+    List<Move> movesFor(GameState state, Player player, boolean first) {
+        List<Move> moves = first ? firstMoves : secondMoves;
+        state.collectMoves(player, moves, this);
+        return moves;
+    }
+
+    /**
+     * Returns a switch to the given dinosaur, reusing the move created for
+     * the same dinosaur and roster slot before.
+     */
+    SwitchMove switchMove(int side, Dinosaur target, int index) {
+        if (index >= switchMoves[side].length) {
+            switchMoves[side] = Arrays.copyOf(switchMoves[side], index + 1);
+            switchTargets[side] = Arrays.copyOf(switchTargets[side], index + 1);
+        }
+        SwitchMove move = switchMoves[side][index];
+        if (move == null || switchTargets[side][index] != target.getId()) {
+            move = new SwitchMove(target, index);
+            switchMoves[side][index] = move;
+            switchTargets[side][index] = target.getId();
+        }
+        return move;
+    }
+
+    /**
+     * Marks the start of a rollout and returns the value to pass to
+     * {@link #endRollout(long)}.
+     */
+    long startRollout() {
+        return THREADS == null ? 0L : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    void endRollout(long start) {
+        rollouts++;
+        if (THREADS != null) {
+            allocatedBytes += THREADS.getCurrentThreadAllocatedBytes() - start;
+        }
+    }
+
+    long getRollouts() {
+        return rollouts;
+    }
+
+    /**
+     * Returns the average number of bytes allocated per rollout, or -1 when
+     * allocations cannot be measured.
+     */
+    long getBytesPerRollout() {
+        if (THREADS == null) {
+            return -1L;
+        }
+        return rollouts == 0 ? 0L : allocatedBytes / rollouts;
+    }
+
+    /**
+     * Returns the bytes allocated by rollouts since the last reset, or -1
+     * when allocations cannot be measured.
+     */
+    long getAllocatedBytes() {
+        return THREADS == null ? -1L : allocatedBytes;
+    }
+
+    void resetStatistics() {
+        rollouts = 0;
+        allocatedBytes = 0;
+    }
+
+    /**
+     * Returns a one line summary of the rollouts counted since the last reset.
+     */
+    String describe() {
+        return describe(rollouts, getAllocatedBytes());
+    }
+
+    /**
+     * Returns a one line summary of the given rollout counters, where a
+     * negative byte count means allocations were not measured.
+     */
+    static String describe(long rollouts, long allocatedBytes) {
+        if (allocatedBytes < 0) {
+            return String.format("Rollouts: %d", rollouts);
+        }
+        long perRollout = rollouts == 0 ? 0L : allocatedBytes / rollouts;
+        return String.format("Rollouts: %d, %d bytes allocated per rollout", rollouts, perRollout);
+    }
+}
@@ -0,0 +1,153 @@
+package com.mesozoic.arena.ai.mcts;
+
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Player;
+
+import java.util.List;
+
+/**
+ * Splits a total thinking budget for one game across its turns.
+ * <p>
+ * Each turn receives the remaining budget divided by the turns still
+ * expected, scaled up for early turns, low health trades and switch
+ * decisions, and down for forced or nearly decided positions. That share is
+ * a soft limit: once it has passed the search stops if the root already
+ * favours one move clearly, and otherwise may continue up to a hard limit.
+ * Because every share is taken from what is left, time saved on easy turns
+ * is spent on later ones and the cost per game stays flat.
+ */
+public final class ThinkTimeManager {
+    private static final int MIN_TURNS_LEFT = 3;
+    private static final double EXTENSION = 2.0;
+    private static final double CLEAR_VISIT_SHARE = 0.6;
+    private static final double CLEAR_SCORE_GAP = 0.1;
+
+    private final long gameBudgetMs;
+    private final int expectedTurns;
+    private long spentMs;
+    private int turns;
+    private long softLimitMs;
+    private long hardLimitMs;
+
+    /**
+     * @param gameBudgetMs  the thinking time for the whole game
+     * @param expectedTurns the number of turns a game is expected to last
+     */
+    public ThinkTimeManager(long gameBudgetMs, int expectedTurns) {
+        this.gameBudgetMs = Math.max(0L, gameBudgetMs);
+        this.expectedTurns = Math.max(1, expectedTurns);
+    }
+
+    /**
+     * Decides the soft and hard limits of the next search.
+     *
+     * @param self       the searching player
+     * @param enemy      the opposing player
+     * @param legalMoves the number of moves available to the searching player
+     * @return the soft limit in milliseconds, at least one
+     */
+    public long allocate(Player self, Player enemy, int legalMoves) {
+        long remaining = getRemainingMs();
+        int turnsLeft = Math.max(MIN_TURNS_LEFT, expectedTurns - turns);
+        double share = (double) remaining / turnsLeft;
+        double factor = legalMoves <= 1 ? 0.0 : positionFactor(self, enemy);
+        softLimitMs = Math.max(1L, Math.min(remaining / 2, Math.round(share * factor)));
+        hardLimitMs = Math.max(softLimitMs, Math.min(remaining / 2, Math.round(softLimitMs * EXTENSION)));
+        return softLimitMs;
+    }
+
+    private double positionFactor(Player self, Player enemy) {
+        double factor = 1.0;
+        if (turns < 2) {
+            factor *= 1.25;
+        }
+        boolean selfLow = healthFraction(self.getActiveDinosaurView()) <= 0.5;
+        boolean enemyLow = healthFraction(enemy.getActiveDinosaurView()) <= 0.5;
+        if (selfLow || enemyLow) {
+            factor *= 1.5;
+        }
+        if (selfLow && self.getDinosaurCount() > 1) {
+            factor *= 1.25;
+        }
+        if (nearlyDecided(self) || nearlyDecided(enemy)) {
+            factor *= 0.5;
+        }
+        return factor;
+    }
+
+    private static double healthFraction(Dinosaur dinosaur) {
+        if (dinosaur == null || dinosaur.getMaxHealth() <= 0) {
+            return 0.0;
+        }
+        return (double) dinosaur.getHealth() / dinosaur.getMaxHealth();
+    }
+
+    private static boolean nearlyDecided(Player player) {
+        return player.getDinosaurCount() <= 1 && healthFraction(player.getActiveDinosaurView()) <= 0.25;
+    }
+
+    public long getSoftLimitMs() {
+        return softLimitMs;
+    }
+
+    public long getHardLimitMs() {
+        return hardLimitMs;
+    }
+
+    /**
+     * Indicates whether a search that reached its soft limit should keep
+     * going: the root has no move with a clear majority of the visits, or
+     * the two most visited moves score nearly the same.
+     */
+    boolean shouldExtend(List<MoveStatistics> rootMoves) {
+        MoveStatistics best = null;
+        MoveStatistics second = null;
+        int total = 0;
+        for (MoveStatistics move : rootMoves) {
+            int visits = move.getVisits();
+            total += visits;
+            if (best == null || visits > best.getVisits()) {
+                second = best;
+                best = move;
+            } else if (second == null || visits > second.getVisits()) {
+                second = move;
+            }
+        }
+        if (best == null || second == null || second.getVisits() == 0) {
+            return false;
+        }
+        if ((double) best.getVisits() / total < CLEAR_VISIT_SHARE) {
+            return true;
+        }
+        double gap = best.getScore() / best.getVisits() - second.getScore() / second.getVisits();
+        return Math.abs(gap) < CLEAR_SCORE_GAP;
+    }
+
+    /**
+     * Records the time taken by a finished search.
+     */
+    public void record(long elapsedMs) {
+        spentMs += Math.max(0L, elapsedMs);
+        turns++;
+    }
+
+    public long getSpentMs() {
+        return spentMs;
+    }
+
+    public long getRemainingMs() {
+        return Math.max(0L, gameBudgetMs - spentMs);
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Returns a one line summary of the budget after the last turn.
+     */
+    public String describe() {
+        return String.format("Think time: %d ms soft, %d ms hard, %d of %d ms left after %d turns",
+                softLimitMs, hardLimitMs, getRemainingMs(), gameBudgetMs, turns);
+    }
+}
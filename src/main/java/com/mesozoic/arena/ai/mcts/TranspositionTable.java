@@ -0,0 +1,213 @@
+package com.mesozoic.arena.ai.mcts;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe table mapping position hashes to shared node statistics, which
+ * turns the search tree into a DAG: nodes reaching the same position through
+ * different move orders accumulate their visits and scores together.
+ * <p>
+ * Positions are keyed on the {@link GameState#hash()} combined with the number
+ * of rounds played, so a position repeating along one path (for example after
+ * switching out and back in) never shares statistics with its own ancestor.
+ * The key also covers whether each player braced on the last turn, which
+ * decides whether Brace works again, as {@link GameState#samePosition} does.
+ * <p>
+ * The table has a fixed number of slots derived from a memory cap. Slots are
+ * grouped into buckets of two and a miss in a full bucket is resolved by the
+ * configured {@link Replacement} policy. A node whose position could not be
+ * stored keeps private statistics.
+ */
+public final class TranspositionTable {
+    /**
+     * Heap cost of one stored position: the slot, the entry (header, key and
+     * reference, 24 bytes) and its statistics (header, four ints and a
+     * double, 40 bytes). This is 68 bytes with compressed references and 80
+     * without, so the larger figure keeps the table within its cap either way.
+     */
+    static final int ENTRY_BYTES = 80;
+
+    private static final long BRACE_ONE_KEY = 0xBF58476D1CE4E5B9L;
+    private static final long BRACE_TWO_KEY = 0x94D049BB133111EBL;
+
+    /**
+     * Decides which entry is evicted when both slots of a bucket are taken.
+     */
+    public enum Replacement {
+        /** Always overwrite the first slot of the bucket. */
+        ALWAYS,
+        /** Evict the entry with fewer visits. */
+        LEAST_VISITED;
+
+        /**
+         * Parses a policy name ignoring case, returning {@link #LEAST_VISITED}
+         * if the value is invalid.
+         */
+        public static Replacement fromString(String label) {
+            if (label != null) {
+                for (Replacement policy : values()) {
+                    if (policy.name().equalsIgnoreCase(label.trim())) {
+                        return policy;
+                    }
+                }
+            }
+            return LEAST_VISITED;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int bucketMask;
+    private final Replacement replacement;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a table using at most roughly {@code maxBytes} of memory.
+     */
+    public TranspositionTable(long maxBytes, Replacement replacement) {
+        long entries = Math.max(2, maxBytes / ENTRY_BYTES);
+        int size = (int) Math.min(1 << 30, Long.highestOneBit(entries));
+        this.slots = new AtomicReferenceArray<>(size);
+        this.bucketMask = (size >> 1) - 1;
+        this.replacement = replacement == null ? Replacement.LEAST_VISITED : replacement;
+    }
+
+    /**
+     * Returns the statistics shared by every node with the same position,
+     * round count and last-turn brace flags as the given state.
+     */
+    NodeStatistics statisticsFor(GameState state) {
+        return statisticsFor(key(state));
+    }
+
+    private static long key(GameState state) {
+        long rounds = state.getRounds();
+        long key = state.hash() ^ (rounds * 0x9E3779B97F4A7C15L);
+        if (state.lastActionWasBrace(state.getPlayerOne())) {
+            key ^= BRACE_ONE_KEY;
+        }
+        if (state.lastActionWasBrace(state.getPlayerTwo())) {
+            key ^= BRACE_TWO_KEY;
+        }
+        return key;
+    }
+
+    /**
+     * Returns the statistics shared by every node with the given key,
+     * creating and storing them on a miss. A slot that changed under a
+     * failed compare-and-set is read again, so threads inserting the same
+     * key at once all end up with the statistics of whichever stored first.
+     * Each lookup is counted once, as a miss if it had to create an entry.
+     */
+    NodeStatistics statisticsFor(long hash) {
+        int first = bucket(hash) << 1;
+        int second = first + 1;
+        Entry created = null;
+        while (true) {
+            Entry a = slots.get(first);
+            if (a != null && a.hash == hash) {
+                if (created == null) {
+                    hits.increment();
+                }
+                return a.statistics;
+            }
+            Entry b = slots.get(second);
+            if (b != null && b.hash == hash) {
+                if (created == null) {
+                    hits.increment();
+                }
+                return b.statistics;
+            }
+            if (created == null) {
+                misses.increment();
+                created = new Entry(hash, new NodeStatistics());
+            }
+            if (a == null) {
+                if (slots.compareAndSet(first, null, created)) {
+                    return created.statistics;
+                }
+                continue;
+            }
+            if (b == null) {
+                if (slots.compareAndSet(second, null, created)) {
+                    return created.statistics;
+                }
+                continue;
+            }
+            int victim = first;
+            Entry current = a;
+            if (replacement == Replacement.LEAST_VISITED
+                    && b.statistics.getVisitCount() < a.statistics.getVisitCount()) {
+                victim = second;
+                current = b;
+            }
+            if (slots.compareAndSet(victim, current, created)) {
+                evictions.increment();
+                return created.statistics;
+            }
+        }
+    }
+
+    private int bucket(long hash) {
+        long mixed = hash ^ (hash >>> 32);
+        return (int) mixed & bucketMask;
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups that found an existing position, or 0
+     * when no lookups have been made.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public void clear() {
+        for (int index = 0; index < slots.length(); index++) {
+            slots.set(index, null);
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Returns a one line summary of the table usage.
+     */
+    public String describe() {
+        return String.format("Transposition table: %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                getHits(), getMisses(), getHitRate() * 100.0, getEvictions());
+    }
+
+    private static final class Entry {
+        private final long hash;
+        private final NodeStatistics statistics;
+
+        private Entry(long hash, NodeStatistics statistics) {
+            this.hash = hash;
+            this.statistics = statistics;
+        }
+    }
+}
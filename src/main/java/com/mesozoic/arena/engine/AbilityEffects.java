@@ -2,18 +2,28 @@ package com.mesozoic.arena.engine;
 
 import com.mesozoic.arena.model.Dinosaur;
 import com.mesozoic.arena.model.Ability;
+import com.mesozoic.arena.model.AbilityType;
 import com.mesozoic.arena.model.Move;
 import com.mesozoic.arena.model.MoveType;
 
 import java.util.Random;
 
 /**
- * Utility methods for applying ability based effects.
+ * Utility methods for applying ability based effects. Each hook dispatches on
+ * the {@link AbilityType} resolved when the ability was loaded.
  */
 public final class AbilityEffects {
     private AbilityEffects() {
     }
 
+    private static AbilityType typeOf(Dinosaur dinosaur) {
+        if (dinosaur == null) {
+            return AbilityType.NONE;
+        }
+        Ability ability = dinosaur.getAbility();
+        return ability == null ? AbilityType.NONE : ability.getType();
+    }
+
     /**
      * Applies effects that trigger when a dinosaur enters the field.
      *
@@ -21,15 +31,7 @@ public final class AbilityEffects {
      * @param opponent the opposing active dinosaur
      */
     public static void onEntry(Dinosaur entering, Dinosaur opponent) {
-        if (entering == null) {
-            return;
-        }
-        Ability ability = entering.getAbility();
-        if (ability == null) {
-            return;
-        }
-        String name = ability.getName();
-        if ("Intimidate".equalsIgnoreCase(name) && opponent != null) {
+        if (typeOf(entering) == AbilityType.INTIMIDATE && opponent != null) {
             opponent.adjustHeadAttackStage(-1);
         }
     }
@@ -38,33 +40,34 @@ public final class AbilityEffects {
      * Modifies incoming damage based on the defender's ability.
      */
     public static int modifyIncomingDamage(Dinosaur defender, int damage) {
-        Ability ability = defender == null ? null : defender.getAbility();
-        if (ability == null) {
-            return damage;
-        }
-
-        String name = ability.getName();
-        if ("Thick Skin".equalsIgnoreCase(name)) {
-            return Math.round(damage * 0.8f);
-        }
-
-        if ("Armored".equalsIgnoreCase(name)) {
-            int modified = damage - 10;
-            return Math.max(0, modified);
-        }
-
-        if ("Tough".equalsIgnoreCase(name)
-                && defender.getHealth() == defender.getMaxHealth()) {
-            return Math.round(damage / 3f);
-        }
-
-        if ("Resilient".equalsIgnoreCase(name)
-                && defender.getHealth() > 20
-                && damage >= defender.getHealth()) {
-            return defender.getHealth() - 1;
+        switch (typeOf(defender)) {
+            case THICK_SKIN:
+                return Math.round(damage * 0.8f);
+            case ARMORED:
+                return Math.max(0, damage - 10);
+            case TOUGH:
+                if (defender.getHealth() == defender.getMaxHealth()) {
+                    return Math.round(damage / 3f);
+                }
+                return damage;
+            case RESILIENT:
+                if (defender.getHealth() > 20 && damage >= defender.getHealth()) {
+                    return defender.getHealth() - 1;
+                }
+                return damage;
+            default:
+                return damage;
         }
+    }
 
-        return damage;
+    /**
+     * Indicates whether {@link #modifyIncomingDamage(Dinosaur, int)} depends
+     * only on the damage for this defender, so that its result can be cached.
+     * Tough and Resilient also look at the defender's current health.
+     */
+    public static boolean hasStatelessDamageModifier(Dinosaur defender) {
+        AbilityType type = typeOf(defender);
+        return type != AbilityType.TOUGH && type != AbilityType.RESILIENT;
     }
 
     /**
@@ -75,12 +78,10 @@ public final class AbilityEffects {
      * @return the priority after ability modifications
      */
     public static int modifyPriority(Dinosaur user, Move move) {
-        if (user == null || move == null) {
-            return move == null ? 0 : move.getPriority();
+        if (move == null) {
+            return 0;
         }
-        Ability ability = user.getAbility();
-        if (ability != null && "Supporter".equalsIgnoreCase(ability.getName())
-                && move.getDamage() == 0) {
+        if (typeOf(user) == AbilityType.SUPPORTER && move.getDamage() == 0) {
             return move.getPriority() + 1;
         }
         return move.getPriority();
@@ -94,20 +95,14 @@ public final class AbilityEffects {
      * @param move     the move used by the attacker
      */
     public static void onAttacked(Dinosaur attacker, Dinosaur defender, Move move) {
-        if (attacker == null || defender == null || move == null) {
+        if (attacker == null || move == null || move.getDamage() <= 0) {
             return;
         }
-
-        Ability ability = defender.getAbility();
-        if (ability == null) {
-            return;
-        }
-        String name = ability.getName();
-        if ("Spiky Body".equalsIgnoreCase(name) && move.getDamage() > 0) {
-            attacker.adjustHealth(-10);
-        }
-        if ("Tiring".equalsIgnoreCase(name) && move.getDamage() > 0) {
-            attacker.adjustSpeedStage(-1);
+        switch (typeOf(defender)) {
+            case SPIKY_BODY -> attacker.adjustHealth(-10);
+            case TIRING -> attacker.adjustSpeedStage(-1);
+            default -> {
+            }
         }
     }
 
@@ -125,20 +120,17 @@ public final class AbilityEffects {
      * @param defender the dinosaur that fainted
      */
     public static void onKnockOut(Dinosaur attacker, Dinosaur defender) {
-        if (attacker == null || defender == null) {
+        if (defender == null) {
             return;
         }
-        Ability ability = attacker.getAbility();
-        if (ability == null) {
-            return;
-        }
-        String name = ability.getName();
-        if ("Berserk".equalsIgnoreCase(name)) {
-            attacker.adjustHeadAttackStage(1);
-        }
-        if ("Scavenge".equalsIgnoreCase(name)) {
-            int healAmount = AilmentEffects.modifyHealing(attacker, 20);
-            attacker.adjustHealth(healAmount);
+        switch (typeOf(attacker)) {
+            case BERSERK -> attacker.adjustHeadAttackStage(1);
+            case SCAVENGE -> {
+                int healAmount = AilmentEffects.modifyHealing(attacker, 20);
+                attacker.adjustHealth(healAmount);
+            }
+            default -> {
+            }
         }
     }
 
@@ -150,16 +142,23 @@ public final class AbilityEffects {
      * @return the accuracy after ability modifications
      */
     public static double modifyAccuracy(Dinosaur user, Move move) {
-        if (user == null || move == null) {
-            return move == null ? 0.0 : move.getAccuracy();
-        }
-        Ability ability = user.getAbility();
-        if (ability != null && "Precise".equalsIgnoreCase(ability.getName()) && MoveType.HEAD.equals(move.getKind())) {
-            return Math.min(1.0, move.getAccuracy() + 0.15);
-        } else if (ability != null && "Controlled".equalsIgnoreCase(ability.getName()) && MoveType.BODY.equals(move.getKind())) {
-            return Math.min(1.0, move.getAccuracy() + 0.1);
+        if (move == null) {
+            return 0.0;
+        }
+        switch (typeOf(user)) {
+            case PRECISE:
+                if (MoveType.HEAD.equals(move.getKind())) {
+                    return Math.min(1.0, move.getAccuracy() + 0.15);
+                }
+                return move.getAccuracy();
+            case CONTROLLED:
+                if (MoveType.BODY.equals(move.getKind())) {
+                    return Math.min(1.0, move.getAccuracy() + 0.1);
+                }
+                return move.getAccuracy();
+            default:
+                return move.getAccuracy();
         }
-        return move.getAccuracy();
     }
 
     /**
@@ -170,16 +169,12 @@ public final class AbilityEffects {
      * @return {@code true} if the attack misses, otherwise {@code false}
      */
     public static boolean firstAttackMiss(Dinosaur defender, Random random) {
-        if (defender == null || random == null) {
+        if (random == null || typeOf(defender) != AbilityType.CAMOUFLAGE
+                || defender.isCamouflageUsed()) {
             return false;
         }
-        Ability ability = defender.getAbility();
-        if (ability != null && "Camouflage".equalsIgnoreCase(ability.getName())
-                && !defender.isCamouflageUsed()) {
-            defender.setCamouflageUsed(true);
-            return random.nextDouble() < 0.5;
-        }
-        return false;
+        defender.setCamouflageUsed(true);
+        return random.nextDouble() < 0.5;
     }
 
     /**
@@ -188,11 +183,7 @@ public final class AbilityEffects {
      * @param user the dinosaur using the move
      */
     public static void onMoveUsed(Dinosaur user) {
-        if (user == null) {
-            return;
-        }
-        Ability ability = user.getAbility();
-        if (ability != null && "Regenerator".equalsIgnoreCase(ability.getName())) {
+        if (typeOf(user) == AbilityType.REGENERATOR) {
             int healAmount = AilmentEffects.modifyHealing(user, 10);
             user.adjustHealth(healAmount);
         }
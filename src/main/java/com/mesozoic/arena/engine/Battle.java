@@ -4,8 +4,10 @@ import com.mesozoic.arena.ai.LLMAgent;
 import com.mesozoic.arena.ai.OpponentAgent;
 import com.mesozoic.arena.ai.mcts.MCTSAgent;
 import com.mesozoic.arena.util.Config;
+import com.mesozoic.arena.util.SplittableRng;
 import com.mesozoic.arena.model.Dinosaur;
 import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.MoveEffect;
 import com.mesozoic.arena.model.MoveType;
 import com.mesozoic.arena.model.Player;
 import com.mesozoic.arena.engine.MoveEffects;
@@ -25,13 +27,20 @@ import com.mesozoic.arena.engine.TurnRecord;
  * players.
  */
 public class Battle {
+    private static final Ailment BLEEDING = new Ailment("Bleeding");
+
     private final Player playerOne;
     private final Player playerTwo;
     private final OpponentAgent opponentAI;
-    private final List<String> eventLog = new ArrayList<>();
+    private final List<BattleEvent> events = new ArrayList<>();
+    private final BattleEventSink eventSink;
     private final List<String> aiLog = new ArrayList<>();
     private final List<TurnRecord> moveHistory;
     private int turn = 1;
+    private int rounds;
+    private boolean lastBraceOne;
+    private boolean lastBraceTwo;
+    private Random random = new SplittableRng();
     private Player winner;
 
     private boolean moveHits(Dinosaur attacker, Dinosaur defender, Move move, Random random) {
@@ -45,11 +54,6 @@ public class Battle {
         return random.nextDouble() < accuracy;
     }
 
-    private void logMiss(Player actingPlayer, Dinosaur attacker, Move move) {
-        String actorLabel = actingPlayer == playerOne ? "Player " : "NPC ";
-        addEvent(actorLabel + attacker.getName() + " used " + move.getName() + " but missed.");
-    }
-
     public Battle(Player playerOne, Player playerTwo) {
         this(playerOne, playerTwo, createAgent(), new ArrayList<>(), true);
     }
@@ -71,21 +75,76 @@ public class Battle {
     }
 
     public Battle(Player playerOne, Player playerTwo, OpponentAgent opponentAI, List<TurnRecord> history, boolean applyEntry) {
+        this(playerOne, playerTwo, opponentAI, history, applyEntry, null);
+    }
+
+    /**
+     * Creates a battle that reports its events to the given sink instead of
+     * the internal event log.
+     *
+     * @param eventSink receiver of battle events, or {@code null} to collect
+     *                  them in the log returned by {@link #getEventLog()}
+     */
+    public Battle(Player playerOne, Player playerTwo, OpponentAgent opponentAI, List<TurnRecord> history,
+            boolean applyEntry, BattleEventSink eventSink) {
+        this(playerOne, playerTwo, opponentAI, history, applyEntry, eventSink, true);
+    }
+
+    private Battle(Player playerOne, Player playerTwo, OpponentAgent opponentAI, List<TurnRecord> history,
+            boolean applyEntry, BattleEventSink eventSink, boolean recordHistory) {
         this.playerOne = playerOne;
         this.playerTwo = playerTwo;
         this.opponentAI = opponentAI;
-        this.moveHistory = history == null ? new ArrayList<>() : history;
+        this.eventSink = eventSink == null ? events::add : eventSink;
+        this.moveHistory = !recordHistory ? null : history == null ? new ArrayList<>() : history;
+        if (moveHistory != null && !moveHistory.isEmpty()) {
+            this.rounds = moveHistory.size();
+            TurnRecord last = moveHistory.get(moveHistory.size() - 1);
+            this.lastBraceOne = last.getPlayerTurnAction().isBrace();
+            this.lastBraceTwo = last.getNpcTurnAction().isBrace();
+        }
         if (applyEntry) {
             handleEntry(playerOne, playerTwo);
             handleEntry(playerTwo, playerOne);
         }
     }
 
+    /**
+     * Creates a battle for simulations. No opponent agent is created and
+     * events are discarded, so only the rules themselves are executed.
+     * Rounds must be played with {@link #executeRound(Move, Move, Random)}.
+     */
+    public static Battle forSimulation(Player playerOne, Player playerTwo, List<TurnRecord> history,
+            boolean applyEntry) {
+        return new Battle(playerOne, playerTwo, null, history, applyEntry, BattleEventSink.NONE);
+    }
+
+    /**
+     * Creates a simulation battle that keeps no turn records, only the
+     * number of rounds played and what the rules need from the last turn.
+     * Use {@link #restoreLastTurn(int, boolean, boolean)} to continue from a
+     * recorded history.
+     */
+    public static Battle forSimulation(Player playerOne, Player playerTwo, boolean applyEntry) {
+        return new Battle(playerOne, playerTwo, null, null, applyEntry, BattleEventSink.NONE, false);
+    }
+
     /**
      * Returns a copy of the cumulative battle log.
      */
     public List<String> getEventLog() {
-        return new ArrayList<>(eventLog);
+        List<String> log = new ArrayList<>(events.size());
+        for (BattleEvent event : events) {
+            log.add(event.toString());
+        }
+        return log;
+    }
+
+    /**
+     * Returns a copy of the structured events collected in the battle log.
+     */
+    public List<BattleEvent> getEvents() {
+        return new ArrayList<>(events);
     }
 
     /**
@@ -96,10 +155,37 @@ public class Battle {
     }
 
     /**
-     * Returns a copy of the recorded moves and switches for each turn.
+     * Returns a copy of the recorded moves and switches for each turn, which
+     * is empty for simulations that keep no records.
      */
     public List<TurnRecord> getMoveHistory() {
-        return new ArrayList<>(moveHistory);
+        return moveHistory == null ? new ArrayList<>() : new ArrayList<>(moveHistory);
+    }
+
+    /**
+     * Returns the number of rounds played, including those of the history
+     * the battle started from.
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Indicates whether the given player's last action was a brace, which
+     * prevents bracing again this turn.
+     */
+    public boolean lastActionWasBrace(Player player) {
+        return player == playerOne ? lastBraceOne : lastBraceTwo;
+    }
+
+    /**
+     * Overrides the round count and last turn. Simulations use this to rewind
+     * a battle to an earlier position.
+     */
+    public void restoreLastTurn(int rounds, boolean braceOne, boolean braceTwo) {
+        this.rounds = rounds;
+        this.lastBraceOne = braceOne;
+        this.lastBraceTwo = braceTwo;
     }
 
     /**
@@ -119,27 +205,42 @@ public class Battle {
                 System.err.println("Falling back to MCTS opponent");
             }
         }
-        Random rng = new Random();
-        return new MCTSAgent(Config.mctsIterations(), new Random(rng.nextLong()),
-                new Random(rng.nextLong()), Config.mctsEpsilon(),
+        SplittableRng rng = new SplittableRng();
+        return new MCTSAgent(Config.mctsIterations(), rng.split(), rng.split(), Config.mctsEpsilon(),
                 Config.mctsSelfMinimaxProbability(),
                 Config.mctsOpponentMinimaxProbability());
     }
 
-    private void addEvent(String message) {
-        eventLog.add("Turn " + turn + ": " + message);
+    private void addEvent(BattleEvent.Kind kind, Player player, Dinosaur dinosaur, Move move,
+            Dinosaur target, int amount) {
+        if (!eventSink.isEnabled()) {
+            return;
+        }
+        eventSink.accept(new BattleEvent(kind, turn, player == playerOne,
+                dinosaur == null ? null : dinosaur.getName(),
+                move == null ? null : move.getName(),
+                target == null ? null : target.getName(),
+                amount, target == null ? 0 : target.getHealth()));
     }
 
     private void addAiLog(String message) {
         aiLog.add("Turn " + turn + ": " + message);
     }
 
+    /**
+     * Sets the source of randomness used by rounds executed without an
+     * explicit one. Seeding it makes a battle reproducible.
+     */
+    public void setRandom(Random random) {
+        this.random = random == null ? new SplittableRng() : random;
+    }
+
     /**
      * Executes a single round where each player performs the provided move.
      * The order of execution is determined by move priority and speed.
      */
     public void executeRound(Move playerOneMove, Move playerTwoMove) {
-        executeRound(playerOneMove, playerTwoMove, new Random());
+        executeRound(playerOneMove, playerTwoMove, random);
     }
 
     public void executeRound(Move playerOneMove, Move playerTwoMove, Random random) {
@@ -147,11 +248,11 @@ public class Battle {
             return;
         }
 
-        Dinosaur switchedOne = applyQueuedSwitch(playerOne, "Player");
+        Dinosaur switchedOne = applyQueuedSwitch(playerOne);
         if (switchedOne != null) {
             playerOneMove = null;
         }
-        Dinosaur switchedTwo = applyQueuedSwitch(playerTwo, "NPC");
+        Dinosaur switchedTwo = applyQueuedSwitch(playerTwo);
         if (switchedTwo != null) {
             playerTwoMove = null;
         }
@@ -187,26 +288,19 @@ public class Battle {
 
         boolean p1Braced = false;
         boolean p2Braced = false;
-        String lastP1Action = null;
-        String lastP2Action = null;
-        if (!moveHistory.isEmpty()) {
-            TurnRecord lastRecord = moveHistory.get(moveHistory.size() - 1);
-            lastP1Action = lastRecord.getPlayerAction();
-            lastP2Action = lastRecord.getNpcAction();
-        }
 
         if (p1First) {
-            p1Braced = MoveEffects.hasBraceEffect(playerOneMove, lastP1Action);
+            p1Braced = MoveEffects.hasBraceEffect(playerOneMove, lastBraceOne);
             boolean fainted = performTurn(playerOne, playerTwo, playerOneMove, p2Braced, random);
             if (winner == null && !fainted) {
-                p2Braced = MoveEffects.hasBraceEffect(playerTwoMove, lastP2Action);
+                p2Braced = MoveEffects.hasBraceEffect(playerTwoMove, lastBraceTwo);
                 performTurn(playerTwo, playerOne, playerTwoMove, p1Braced, random);
             }
         } else {
-            p2Braced = MoveEffects.hasBraceEffect(playerTwoMove, lastP2Action);
+            p2Braced = MoveEffects.hasBraceEffect(playerTwoMove, lastBraceTwo);
             boolean fainted = performTurn(playerTwo, playerOne, playerTwoMove, p1Braced, random);
             if (winner == null && !fainted) {
-                p1Braced = MoveEffects.hasBraceEffect(playerOneMove, lastP1Action);
+                p1Braced = MoveEffects.hasBraceEffect(playerOneMove, lastBraceOne);
                 performTurn(playerOne, playerTwo, playerOneMove, p2Braced, random);
             }
         }
@@ -218,19 +312,39 @@ public class Battle {
         playerOne.tickPersistentEffects();
         playerTwo.tickPersistentEffects();
 
-        String p1Action = switchedOne != null ? "Switch to " + switchedOne.getName()
-                : playerOneMove == null ? "None" : playerOneMove.getName();
-        String p2Action = switchedTwo != null ? "Switch to " + switchedTwo.getName()
-                : playerTwoMove == null ? "None" : playerTwoMove.getName();
-        moveHistory.add(new TurnRecord(p1Action, p2Action));
+        if (moveHistory != null) {
+            TurnAction p1Action = switchedOne != null ? TurnAction.switchTo(switchedOne)
+                    : TurnAction.move(playerOneMove);
+            TurnAction p2Action = switchedTwo != null ? TurnAction.switchTo(switchedTwo)
+                    : TurnAction.move(playerTwoMove);
+            moveHistory.add(new TurnRecord(p1Action, p2Action));
+        }
+        lastBraceOne = switchedOne == null && MoveEffects.containsEffect(playerOneMove, MoveEffect.BRACE);
+        lastBraceTwo = switchedTwo == null && MoveEffects.containsEffect(playerTwoMove, MoveEffect.BRACE);
+        rounds++;
+    }
+
+    /**
+     * Lets the opponent agent think about the current position while the
+     * player chooses a move. The next {@link #executeRound(Move)} picks up
+     * the result.
+     */
+    public void startPondering() {
+        if (opponentAI != null && winner == null) {
+            opponentAI.startPondering(playerTwo, playerOne,
+                    moveHistory == null ? List.of() : Collections.unmodifiableList(moveHistory));
+        }
     }
 
     /**
      * Executes a round using the AI to select the opponent's move.
      */
     public void executeRound(Move playerOneMove) {
+        if (opponentAI == null) {
+            throw new IllegalStateException("Simulation battles have no opponent agent");
+        }
         Move playerTwoMove = opponentAI.chooseMove(playerTwo, playerOne,
-                Collections.unmodifiableList(moveHistory));
+                moveHistory == null ? List.of() : Collections.unmodifiableList(moveHistory));
         if (opponentAI instanceof MCTSAgent mcts) {
             String stats = mcts.getLastStats();
             if (stats != null && !stats.isBlank()) {
@@ -250,6 +364,16 @@ public class Battle {
         return winner;
     }
 
+    /**
+     * Overrides the recorded winner. Simulations use this to rewind a battle
+     * to an earlier position.
+     *
+     * @param winner the winner to restore, or {@code null} if undecided
+     */
+    public void restoreWinner(Player winner) {
+        this.winner = winner;
+    }
+
     private boolean performTurn(Player actingPlayer, Player opposingPlayer, Move move,
             boolean defenderBraced, Random random) {
         int repeatCount = MoveEffects.getRepeatCount(move);
@@ -266,35 +390,25 @@ public class Battle {
             }
 
             if (!moveHits(attacker, defender, move, random)) {
-                logMiss(actingPlayer, attacker, move);
+                addEvent(BattleEvent.Kind.MISS, actingPlayer, attacker, move, null, 0);
                 defenderBraced = false;
                 continue;
             }
 
             applyMoveEffects(actingPlayer, opposingPlayer, move);
             if (!defenderBraced) {
-                int totalDamage = DamageCalculator.calculate(attacker, defender, move);
-                totalDamage = AbilityEffects.modifyIncomingDamage(defender, totalDamage);
+                int totalDamage = DamageCalculator.calculateIncoming(attacker, defender, move);
                 int beforeHealth = defender.getHealth();
                 defender.adjustHealth(-totalDamage);
                 int damageDealt = beforeHealth - defender.getHealth();
-                if (MoveEffects.containsEffect(move, "recoil") && damageDealt > 0) {
+                if (MoveEffects.containsEffect(move, MoveEffect.RECOIL) && damageDealt > 0) {
                     int recoil = damageDealt / 4;
                     attacker.adjustHealth(-recoil);
                 }
                 MoveEffects.applyDrain(attacker, move, damageDealt);
-                String actorLabel = actingPlayer == playerOne ? "Player " : "NPC ";
-                String defenderLabel = opposingPlayer == playerOne ? "Player " : "NPC ";
-                addEvent(actorLabel + attacker.getName() + " used " + move.getName() +
-                        " dealing " + damageDealt + " damage. " + defenderLabel +
-                        defender.getName() + " has " + Math.max(0, defender.getHealth()) +
-                        " health left.");
+                addEvent(BattleEvent.Kind.HIT, actingPlayer, attacker, move, defender, damageDealt);
             } else {
-                String actorLabel = actingPlayer == playerOne ? "Player " : "NPC ";
-                String defenderLabel = opposingPlayer == playerOne ? "Player " : "NPC ";
-                addEvent(actorLabel + attacker.getName() + " used " + move.getName() +
-                        " but " + defenderLabel + defender.getName() +
-                        " braced and took no damage.");
+                addEvent(BattleEvent.Kind.BRACED, actingPlayer, attacker, move, defender, 0);
             }
 
             AbilityEffects.onAttacked(attacker, defender, move);
@@ -312,7 +426,7 @@ public class Battle {
             defenderBraced = false;
         }
 
-        if (MoveEffects.containsEffect(move, "switch out")
+        if (MoveEffects.containsEffect(move, MoveEffect.SWITCH_OUT)
                 && actingPlayer.getActiveDinosaur() != null) {
             performAutoSwitch(actingPlayer, opposingPlayer);
         }
@@ -341,7 +455,7 @@ public class Battle {
         }
     }
 
-    private Dinosaur applyQueuedSwitch(Player player, String label) {
+    private Dinosaur applyQueuedSwitch(Player player) {
         Dinosaur target = player.getQueuedSwitch();
         if (target == null) {
             return null;
@@ -350,12 +464,12 @@ public class Battle {
         Player opponent = player == playerOne ? playerTwo : playerOne;
         handleEntry(player, opponent);
         player.clearQueuedSwitch();
-        addEvent(label + " switched to " + target.getName() + ".");
+        addEvent(BattleEvent.Kind.SWITCH, player, null, null, target, 0);
         return target;
     }
 
     private void performAutoSwitch(Player player, Player opponent) {
-        List<Dinosaur> dinosaurs = player.getDinosaurs();
+        List<Dinosaur> dinosaurs = player.getDinosaursView();
         Dinosaur active = player.getActiveDinosaur();
         int index = dinosaurs.indexOf(active);
         if (index < 0 || dinosaurs.size() <= 1) {
@@ -383,8 +497,7 @@ public class Battle {
         }
         int damage = Math.round(dino.getMaxHealth() * 0.125f);
         dino.adjustHealth(-damage);
-        String label = player == playerOne ? "Player " : "NPC ";
-        addEvent(label + dino.getName() + " took " + damage + " damage from rocks.");
+        addEvent(BattleEvent.Kind.ROCKS_DAMAGE, player, dino, null, null, damage);
     }
 
 
@@ -394,51 +507,50 @@ public class Battle {
             return;
         }
 
-        if (MoveEffects.containsEffect(move, "small heal")) {
+        if (MoveEffects.containsEffect(move, MoveEffect.SMALL_HEAL)) {
             int healAmount = AilmentEffects.modifyHealing(active, 10);
             active.adjustHealth(healAmount);
         }
-        if (MoveEffects.containsEffect(move, "big heal")) {
+        if (MoveEffects.containsEffect(move, MoveEffect.BIG_HEAL)) {
             int healAmount = AilmentEffects.modifyHealing(active, 30);
             active.adjustHealth(healAmount);
         }
-        if (MoveEffects.containsEffect(move, "area heal")) {
-            for (Dinosaur dinosaur : actingPlayer.getDinosaurs()) {
+        if (MoveEffects.containsEffect(move, MoveEffect.AREA_HEAL)) {
+            for (int index = 0; index < actingPlayer.getDinosaurCount(); index++) {
+                Dinosaur dinosaur = actingPlayer.getDinosaur(index);
                 int healAmount = AilmentEffects.modifyHealing(dinosaur, 10);
                 dinosaur.adjustHealth(healAmount);
             }
         }
-        if (MoveEffects.containsEffect(move, "frenzy")) {
+        if (MoveEffects.containsEffect(move, MoveEffect.FRENZY)) {
             active.adjustHeadAttackStage(2);
         }
-        if (MoveEffects.containsEffect(move, "adrenaline")) {
+        if (MoveEffects.containsEffect(move, MoveEffect.ADRENALINE)) {
             active.adjustBodyAttackStage(1);
             active.adjustSpeedStage(1);
         }
-        if (MoveEffects.containsEffect(move, "fatigue")) {
+        if (MoveEffects.containsEffect(move, MoveEffect.FATIGUE)) {
             active.adjustHeadAttackStage(-1);
         }
-        if (MoveEffects.containsEffect(move, "slow")) {
+        if (MoveEffects.containsEffect(move, MoveEffect.SLOW)) {
             Dinosaur defender = defendingPlayer.getActiveDinosaur();
             if (defender != null) {
                 defender.adjustSpeedStage(-1);
             }
         }
-        if (MoveEffects.containsEffect(move, "bleed")) {
+        if (MoveEffects.containsEffect(move, MoveEffect.BLEED)) {
             Dinosaur defender = defendingPlayer.getActiveDinosaur();
-            AilmentEffects.applyAilment(defender, new Ailment("Bleeding"));
+            AilmentEffects.applyAilment(defender, BLEEDING);
         }
-        if (MoveEffects.containsEffect(move, "tailwind")) {
+        if (MoveEffects.containsEffect(move, MoveEffect.TAILWIND)) {
             actingPlayer.addPersistentEffect(
                     PersistentEffectRegistry.createEffect("Tailwind"));
-            String label = actingPlayer == playerOne ? "Player" : "NPC";
-            addEvent(label + " set Tailwind.");
+            addEvent(BattleEvent.Kind.TAILWIND_SET, actingPlayer, null, null, null, 0);
         }
-        if (MoveEffects.containsEffect(move, "rocks")) {
+        if (MoveEffects.containsEffect(move, MoveEffect.ROCKS)) {
             defendingPlayer.addPersistentEffect(
                     PersistentEffectRegistry.createEffect("Rocks"));
-            String label = defendingPlayer == playerOne ? "Player" : "NPC";
-            addEvent("Rocks were scattered on " + label + " side.");
+            addEvent(BattleEvent.Kind.ROCKS_SET, defendingPlayer, null, null, null, 0);
         }
     }
 }
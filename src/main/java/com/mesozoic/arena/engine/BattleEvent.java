@@ -0,0 +1,121 @@
+package com.mesozoic.arena.engine;
+
+/**
+ * Structured record of something that happened during a battle. The
+ * human-readable message is only built when {@link #getMessage()} or
+ * {@link #toString()} is called.
+ */
+public final class BattleEvent {
+    /**
+     * The different kinds of events a battle can report.
+     */
+    public enum Kind {
+        /** A move missed its target. */
+        MISS,
+        /** A move hit and dealt damage. */
+        HIT,
+        /** A move hit a bracing dinosaur and dealt no damage. */
+        BRACED,
+        /** A player switched to another dinosaur. */
+        SWITCH,
+        /** A dinosaur took damage from rocks when entering. */
+        ROCKS_DAMAGE,
+        /** A player set Tailwind on their side. */
+        TAILWIND_SET,
+        /** Rocks were scattered on a player's side. */
+        ROCKS_SET
+    }
+
+    private final Kind kind;
+    private final int turn;
+    private final boolean playerOne;
+    private final String dinosaur;
+    private final String move;
+    private final String target;
+    private final int amount;
+    private final int remainingHealth;
+
+    /**
+     * @param kind            type of the event
+     * @param turn            turn in which the event happened
+     * @param playerOne       whether the event concerns player one's side
+     * @param dinosaur        name of the acting or affected dinosaur, if any
+     * @param move            name of the move used, if any
+     * @param target          name of the targeted dinosaur, if any
+     * @param amount          damage dealt, if any
+     * @param remainingHealth health left on the target after a hit
+     */
+    public BattleEvent(Kind kind, int turn, boolean playerOne, String dinosaur,
+            String move, String target, int amount, int remainingHealth) {
+        this.kind = kind;
+        this.turn = turn;
+        this.playerOne = playerOne;
+        this.dinosaur = dinosaur;
+        this.move = move;
+        this.target = target;
+        this.amount = amount;
+        this.remainingHealth = remainingHealth;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Returns {@code true} when the event concerns player one's side. For
+     * moves this is the acting side, for rocks the side they landed on.
+     */
+    public boolean isPlayerOne() {
+        return playerOne;
+    }
+
+    public String getDinosaur() {
+        return dinosaur;
+    }
+
+    public String getMove() {
+        return move;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public int getRemainingHealth() {
+        return remainingHealth;
+    }
+
+    /**
+     * Builds the log message for this event without the turn prefix.
+     */
+    public String getMessage() {
+        String label = playerOne ? "Player" : "NPC";
+        String opposingLabel = playerOne ? "NPC" : "Player";
+        return switch (kind) {
+            case MISS -> label + " " + dinosaur + " used " + move + " but missed.";
+            case HIT -> label + " " + dinosaur + " used " + move + " dealing " + amount
+                    + " damage. " + opposingLabel + " " + target + " has "
+                    + Math.max(0, remainingHealth) + " health left.";
+            case BRACED -> label + " " + dinosaur + " used " + move + " but "
+                    + opposingLabel + " " + target + " braced and took no damage.";
+            case SWITCH -> label + " switched to " + target + ".";
+            case ROCKS_DAMAGE -> label + " " + dinosaur + " took " + amount
+                    + " damage from rocks.";
+            case TAILWIND_SET -> label + " set Tailwind.";
+            case ROCKS_SET -> "Rocks were scattered on " + label + " side.";
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "Turn " + turn + ": " + getMessage();
+    }
+}
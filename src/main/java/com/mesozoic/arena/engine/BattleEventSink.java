@@ -0,0 +1,35 @@
+package com.mesozoic.arena.engine;
+
+/**
+ * Receives the events produced while a battle is played.
+ */
+@FunctionalInterface
+public interface BattleEventSink {
+    /**
+     * Sink that discards every event. Battles using it skip creating events
+     * altogether.
+     */
+    BattleEventSink NONE = new BattleEventSink() {
+        @Override
+        public void accept(BattleEvent event) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * Handles a single event.
+     */
+    void accept(BattleEvent event);
+
+    /**
+     * Returns {@code false} when events would be ignored anyway, allowing the
+     * battle to avoid building them.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+}
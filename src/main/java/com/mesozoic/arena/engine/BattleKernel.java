@@ -0,0 +1,774 @@
+package com.mesozoic.arena.engine;
+
+import com.mesozoic.arena.model.Ability;
+import com.mesozoic.arena.model.AbilityType;
+import com.mesozoic.arena.model.DinoType;
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.MoveEffect;
+import com.mesozoic.arena.model.MoveType;
+import com.mesozoic.arena.model.PersistentEffectDefinition;
+import com.mesozoic.arena.model.Player;
+import com.mesozoic.arena.model.SwitchMove;
+import com.mesozoic.arena.util.PersistentEffectRegistry;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.mesozoic.arena.engine.PackedBattleState.ACTIVE;
+import static com.mesozoic.arena.engine.PackedBattleState.AILMENT_BLEEDING;
+import static com.mesozoic.arena.engine.PackedBattleState.AILMENT_SHIFT;
+import static com.mesozoic.arena.engine.PackedBattleState.ALIVE;
+import static com.mesozoic.arena.engine.PackedBattleState.BODY_SHIFT;
+import static com.mesozoic.arena.engine.PackedBattleState.CAMOUFLAGE_BIT;
+import static com.mesozoic.arena.engine.PackedBattleState.FLAGS;
+import static com.mesozoic.arena.engine.PackedBattleState.FLAG_LAST_BRACE;
+import static com.mesozoic.arena.engine.PackedBattleState.HEAD_SHIFT;
+import static com.mesozoic.arena.engine.PackedBattleState.ROCKS;
+import static com.mesozoic.arena.engine.PackedBattleState.SLOT_HEALTH;
+import static com.mesozoic.arena.engine.PackedBattleState.SLOT_STATUS;
+import static com.mesozoic.arena.engine.PackedBattleState.SPEED_SHIFT;
+import static com.mesozoic.arena.engine.PackedBattleState.STAGE_MASK;
+import static com.mesozoic.arena.engine.PackedBattleState.STAGE_OFFSET;
+import static com.mesozoic.arena.engine.PackedBattleState.TAILWIND;
+import static com.mesozoic.arena.engine.PackedBattleState.WINNER;
+
+/**
+ * Resolves rounds directly on a {@link PackedBattleState}.
+ * <p>
+ * A kernel is built once for two rosters and flattens everything that never
+ * changes during a battle (stats, type multipliers, abilities and move data)
+ * into primitive tables. {@link #executeRound(PackedBattleState, int, int, Random)}
+ * then follows the same rules and consumes random numbers in the same order
+ * as {@link Battle#executeRound(Move, Move, Random)}, without allocating.
+ * <p>
+ * Actions are encoded as {@link #NO_ACTION}, the index of a move of the
+ * active dinosaur, or {@link #SWITCH_ACTION} plus the roster slot to switch
+ * to.
+ */
+public final class BattleKernel {
+    public static final int NO_ACTION = -1;
+    public static final int SWITCH_ACTION = 16;
+
+    private static final int EFFECT_SMALL_HEAL = MoveEffect.SMALL_HEAL.mask();
+    private static final int EFFECT_BIG_HEAL = MoveEffect.BIG_HEAL.mask();
+    private static final int EFFECT_AREA_HEAL = MoveEffect.AREA_HEAL.mask();
+    private static final int EFFECT_FRENZY = MoveEffect.FRENZY.mask();
+    private static final int EFFECT_ADRENALINE = MoveEffect.ADRENALINE.mask();
+    private static final int EFFECT_FATIGUE = MoveEffect.FATIGUE.mask();
+    private static final int EFFECT_SLOW = MoveEffect.SLOW.mask();
+    private static final int EFFECT_BLEED = MoveEffect.BLEED.mask();
+    private static final int EFFECT_TAILWIND = MoveEffect.TAILWIND.mask();
+    private static final int EFFECT_ROCKS = MoveEffect.ROCKS.mask();
+    private static final int EFFECT_RECOIL = MoveEffect.RECOIL.mask();
+    private static final int EFFECT_BIG_DRAIN = MoveEffect.BIG_DRAIN.mask();
+    private static final int EFFECT_SMALL_DRAIN = MoveEffect.SMALL_DRAIN.mask();
+    private static final int EFFECT_BRACE = MoveEffect.BRACE.mask();
+    private static final int EFFECT_DOUBLE_ATTACK = MoveEffect.DOUBLE_ATTACK.mask();
+    private static final int EFFECT_TRIPLE_ATTACK = MoveEffect.TRIPLE_ATTACK.mask();
+    private static final int EFFECT_SWITCH_OUT = MoveEffect.SWITCH_OUT.mask();
+
+    private static final float[] STAGE_MULTIPLIERS = new float[13];
+
+    static {
+        for (int stage = -6; stage <= 6; stage++) {
+            STAGE_MULTIPLIERS[stage + STAGE_OFFSET] = stage >= 0
+                    ? (2f + stage) / 2f
+                    : 2f / (2 - stage);
+        }
+    }
+
+    private final int slots;
+    private final Dinosaur[][] roster;
+    private final int[][] maxHealth;
+    private final int[][] speed;
+    private final AbilityType[][] ability;
+    private final double[][] headAttack;
+    private final double[][] bodyAttack;
+    private final double[][][] defence;
+    private final int[][] typeMask;
+    private final int[][] moveCount;
+    private final int[][][] moveDamage;
+    private final int[][][] movePriority;
+    private final int[][][] moveType;
+    private final int[][][] moveEffects;
+    private final boolean[][][] moveHead;
+    private final double[][][] moveAccuracy;
+    private final int tailwindCounter;
+    private final int rocksCounter;
+
+    /**
+     * Builds the static tables for the current rosters of both players.
+     * Slot numbers follow the roster order at this point.
+     */
+    public BattleKernel(Player playerOne, Player playerTwo) {
+        List<Dinosaur> one = playerOne.getDinosaursView();
+        List<Dinosaur> two = playerTwo.getDinosaursView();
+        this.slots = Math.max(one.size(), two.size());
+        if (slots > Integer.SIZE - 1) {
+            throw new IllegalArgumentException("Too many dinosaurs for a packed state: " + slots);
+        }
+        roster = new Dinosaur[2][slots];
+        maxHealth = new int[2][slots];
+        speed = new int[2][slots];
+        ability = new AbilityType[2][slots];
+        headAttack = new double[2][slots];
+        bodyAttack = new double[2][slots];
+        defence = new double[2][slots][DinoType.COUNT];
+        typeMask = new int[2][slots];
+        moveCount = new int[2][slots];
+        moveDamage = new int[2][slots][];
+        movePriority = new int[2][slots][];
+        moveType = new int[2][slots][];
+        moveEffects = new int[2][slots][];
+        moveHead = new boolean[2][slots][];
+        moveAccuracy = new double[2][slots][];
+        for (int slot = 0; slot < slots; slot++) {
+            describe(0, slot, slot < one.size() ? one.get(slot) : null);
+            describe(1, slot, slot < two.size() ? two.get(slot) : null);
+        }
+        tailwindCounter = counterFor("Tailwind");
+        rocksCounter = counterFor("Rocks");
+    }
+
+    private void describe(int side, int slot, Dinosaur dinosaur) {
+        roster[side][slot] = dinosaur;
+        if (dinosaur == null) {
+            moveDamage[side][slot] = new int[0];
+            movePriority[side][slot] = new int[0];
+            moveType[side][slot] = new int[0];
+            moveEffects[side][slot] = new int[0];
+            moveHead[side][slot] = new boolean[0];
+            moveAccuracy[side][slot] = new double[0];
+            return;
+        }
+        maxHealth[side][slot] = dinosaur.getMaxHealth();
+        speed[side][slot] = dinosaur.getSpeed();
+        ability[side][slot] = abilityType(dinosaur.getAbility());
+        headAttack[side][slot] = dinosaur.getHeadAttack();
+        bodyAttack[side][slot] = dinosaur.getBodyAttack();
+        for (DinoType type : DinoType.values()) {
+            defence[side][slot][type.ordinal()] = dinosaur.getMultiplierFrom(type);
+        }
+        typeMask[side][slot] = dinosaur.getTypeMask();
+        List<Move> moves = dinosaur.getMovesView();
+        int count = moves.size();
+        moveCount[side][slot] = count;
+        moveDamage[side][slot] = new int[count];
+        movePriority[side][slot] = new int[count];
+        moveType[side][slot] = new int[count];
+        moveEffects[side][slot] = new int[count];
+        moveHead[side][slot] = new boolean[count];
+        moveAccuracy[side][slot] = new double[count];
+        for (int index = 0; index < count; index++) {
+            Move move = moves.get(index);
+            moveDamage[side][slot][index] = move.getDamage();
+            movePriority[side][slot][index] = move.getPriority();
+            moveType[side][slot][index] = move.getType().ordinal();
+            moveEffects[side][slot][index] = move.getEffectMask();
+            moveHead[side][slot][index] = move.getKind() == MoveType.HEAD;
+            moveAccuracy[side][slot][index] = move.getAccuracy();
+        }
+    }
+
+    private static AbilityType abilityType(Ability ability) {
+        return ability == null ? AbilityType.NONE : ability.getType();
+    }
+
+    private static int counterFor(String effectName) {
+        PersistentEffectDefinition definition = PersistentEffectRegistry.getDefinition(effectName);
+        if (definition == null) {
+            return 0;
+        }
+        return definition.getDuration() > 0 ? definition.getDuration() : -1;
+    }
+
+    public int getSlotsPerSide() {
+        return slots;
+    }
+
+    /**
+     * Encodes the current position of both players. Dinosaurs are matched to
+     * the slots captured at construction by identity and then by id, which
+     * copies keep; dinosaurs no longer on a roster are treated as fainted.
+     * The winner is derived from empty rosters.
+     */
+    public PackedBattleState encode(Player playerOne, Player playerTwo, List<TurnRecord> history) {
+        int winner = 0;
+        if (!playerTwo.hasRemainingDinosaurs()) {
+            winner = 1;
+        } else if (!playerOne.hasRemainingDinosaurs()) {
+            winner = 2;
+        }
+        return encode(playerOne, playerTwo, history, winner);
+    }
+
+    /**
+     * Encodes the current position of both players with an explicit winner
+     * (0 undecided, 1 side one, 2 side two).
+     */
+    public PackedBattleState encode(Player playerOne, Player playerTwo,
+            List<TurnRecord> history, int winner) {
+        boolean braceOne = false;
+        boolean braceTwo = false;
+        if (history != null && !history.isEmpty()) {
+            TurnRecord last = history.get(history.size() - 1);
+            braceOne = last.getPlayerTurnAction().isBrace();
+            braceTwo = last.getNpcTurnAction().isBrace();
+        }
+        return encode(playerOne, playerTwo, braceOne, braceTwo, winner);
+    }
+
+    /**
+     * Encodes the current position of both players given whether each of
+     * them braced on the last turn and an explicit winner.
+     */
+    public PackedBattleState encode(Player playerOne, Player playerTwo,
+            boolean lastBraceOne, boolean lastBraceTwo, int winner) {
+        PackedBattleState state = new PackedBattleState(slots);
+        int[] data = state.data;
+        data[WINNER] = winner;
+        encodeSide(state, 0, playerOne);
+        encodeSide(state, 1, playerTwo);
+        if (lastBraceOne) {
+            data[state.sideBase(0) + FLAGS] |= FLAG_LAST_BRACE;
+        }
+        if (lastBraceTwo) {
+            data[state.sideBase(1) + FLAGS] |= FLAG_LAST_BRACE;
+        }
+        return state;
+    }
+
+    private void encodeSide(PackedBattleState state, int side, Player player) {
+        int[] data = state.data;
+        int base = state.sideBase(side);
+        int alive = 0;
+        for (Dinosaur dinosaur : player.getDinosaursView()) {
+            int slot = slotOf(side, dinosaur);
+            if (slot < 0) {
+                continue;
+            }
+            alive |= 1 << slot;
+            int slotBase = state.slotBase(side, slot);
+            data[slotBase + SLOT_HEALTH] = dinosaur.getHealth();
+            int status = ((dinosaur.getHeadAttackStage() + STAGE_OFFSET) << HEAD_SHIFT)
+                    | ((dinosaur.getBodyAttackStage() + STAGE_OFFSET) << BODY_SHIFT)
+                    | ((dinosaur.getSpeedStage() + STAGE_OFFSET) << SPEED_SHIFT);
+            if (dinosaur.hasAilment("Bleeding")) {
+                status |= AILMENT_BLEEDING << AILMENT_SHIFT;
+            }
+            if (dinosaur.isCamouflageUsed()) {
+                status |= CAMOUFLAGE_BIT;
+            }
+            data[slotBase + SLOT_STATUS] = status;
+        }
+        data[base + ALIVE] = alive;
+        data[base + ACTIVE] = slotOf(side, player.getActiveDinosaur());
+        data[base + TAILWIND] = encodeCounter(player, "Tailwind");
+        data[base + ROCKS] = encodeCounter(player, "Rocks");
+    }
+
+    private static int encodeCounter(Player player, String name) {
+        for (var effect : player.getPersistentEffectsView()) {
+            if (name.equalsIgnoreCase(effect.getName())) {
+                return effect.getDuration() > 0 ? effect.getRemaining() : -1;
+            }
+        }
+        return 0;
+    }
+
+    private int slotOf(int side, Dinosaur dinosaur) {
+        if (dinosaur == null) {
+            return -1;
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            if (roster[side][slot] == dinosaur) {
+                return slot;
+            }
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            Dinosaur candidate = roster[side][slot];
+            if (candidate != null && candidate.getId() == dinosaur.getId()) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Converts a move offered for the given player into a kernel action.
+     * Switches are translated from roster indices into slots.
+     */
+    public int actionFor(PackedBattleState state, int side, Player player, Move move) {
+        if (move == null) {
+            return NO_ACTION;
+        }
+        if (move instanceof SwitchMove switchMove) {
+            int remaining = switchMove.getTargetIndex();
+            int mask = state.getAliveMask(side);
+            for (int slot = 0; slot < slots; slot++) {
+                if ((mask & (1 << slot)) != 0 && remaining-- == 0) {
+                    return SWITCH_ACTION + slot;
+                }
+            }
+            return NO_ACTION;
+        }
+        Dinosaur active = player.getActiveDinosaur();
+        if (active == null) {
+            return NO_ACTION;
+        }
+        List<Move> moves = active.getMovesView();
+        for (int index = 0; index < moves.size(); index++) {
+            if (moves.get(index) == move) {
+                return index;
+            }
+        }
+        for (int index = 0; index < moves.size(); index++) {
+            if (moves.get(index).getName().equals(move.getName())) {
+                return index;
+            }
+        }
+        return NO_ACTION;
+    }
+
+    /**
+     * Returns the number of moves known by the dinosaur in the given slot.
+     */
+    public int getMoveCount(int side, int slot) {
+        return moveCount[side][slot];
+    }
+
+    /**
+     * Resolves a full round on the packed state in place.
+     *
+     * @param state     position to update
+     * @param actionOne action of side one
+     * @param actionTwo action of side two
+     * @param random    source of randomness for accuracy and Camouflage
+     */
+    public void executeRound(PackedBattleState state, int actionOne, int actionTwo, Random random) {
+        int[] data = state.data;
+        if (data[WINNER] != 0) {
+            return;
+        }
+
+        boolean switchedOne = false;
+        boolean switchedTwo = false;
+        if (actionOne >= SWITCH_ACTION) {
+            switchedOne = applySwitch(state, 0, actionOne - SWITCH_ACTION);
+            actionOne = NO_ACTION;
+        }
+        if (actionTwo >= SWITCH_ACTION) {
+            switchedTwo = applySwitch(state, 1, actionTwo - SWITCH_ACTION);
+            actionTwo = NO_ACTION;
+        }
+
+        int ownerOne = active(state, 0);
+        int ownerTwo = active(state, 1);
+        if (ownerOne < 0 || ownerTwo < 0) {
+            return;
+        }
+        if (actionOne >= moveCount[0][ownerOne]) {
+            actionOne = NO_ACTION;
+        }
+        if (actionTwo >= moveCount[1][ownerTwo]) {
+            actionTwo = NO_ACTION;
+        }
+
+        int priorityOne = actionOne == NO_ACTION ? Integer.MIN_VALUE
+                : priority(0, ownerOne, actionOne);
+        int priorityTwo = actionTwo == NO_ACTION ? Integer.MIN_VALUE
+                : priority(1, ownerTwo, actionTwo);
+        boolean oneFirst;
+        if (priorityOne != priorityTwo) {
+            oneFirst = priorityOne > priorityTwo;
+        } else {
+            int speedOne = modifiedSpeed(state, 0);
+            int speedTwo = modifiedSpeed(state, 1);
+            if (speedOne == speedTwo) {
+                int totalOne = state.getTotalHealth(0);
+                int totalTwo = state.getTotalHealth(1);
+                oneFirst = totalOne <= totalTwo;
+            } else {
+                oneFirst = speedOne > speedTwo;
+            }
+        }
+
+        boolean lastBraceOne = state.lastActionWasBrace(0);
+        boolean lastBraceTwo = state.lastActionWasBrace(1);
+        boolean bracedOne = false;
+        boolean bracedTwo = false;
+        if (oneFirst) {
+            bracedOne = hasBrace(0, ownerOne, actionOne, lastBraceOne);
+            boolean fainted = performTurn(state, 0, ownerOne, actionOne, bracedTwo, random);
+            if (data[WINNER] == 0 && !fainted) {
+                bracedTwo = hasBrace(1, ownerTwo, actionTwo, lastBraceTwo);
+                performTurn(state, 1, ownerTwo, actionTwo, bracedOne, random);
+            }
+        } else {
+            bracedTwo = hasBrace(1, ownerTwo, actionTwo, lastBraceTwo);
+            boolean fainted = performTurn(state, 1, ownerTwo, actionTwo, bracedOne, random);
+            if (data[WINNER] == 0 && !fainted) {
+                bracedOne = hasBrace(0, ownerOne, actionOne, lastBraceOne);
+                performTurn(state, 0, ownerOne, actionOne, bracedTwo, random);
+            }
+        }
+
+        bleed(state, 0);
+        bleed(state, 1);
+        tickCounters(state, 0);
+        tickCounters(state, 1);
+
+        setLastBrace(state, 0, !switchedOne && actionOne != NO_ACTION
+                && (moveEffects[0][ownerOne][actionOne] & EFFECT_BRACE) != 0);
+        setLastBrace(state, 1, !switchedTwo && actionTwo != NO_ACTION
+                && (moveEffects[1][ownerTwo][actionTwo] & EFFECT_BRACE) != 0);
+    }
+
+    private boolean performTurn(PackedBattleState state, int side, int owner, int action,
+            boolean defenderBraced, Random random) {
+        int opponent = 1 - side;
+        int effects = action == NO_ACTION ? 0 : moveEffects[side][owner][action];
+        int repeatCount = (effects & EFFECT_TRIPLE_ATTACK) != 0 ? 3
+                : (effects & EFFECT_DOUBLE_ATTACK) != 0 ? 2 : 1;
+        boolean defenderFainted = false;
+        int initialAttacker = active(state, side);
+        if (action != NO_ACTION && initialAttacker >= 0
+                && ability[side][initialAttacker] == AbilityType.REGENERATOR) {
+            heal(state, side, initialAttacker, 10);
+        }
+        for (int index = 0; index < repeatCount; index++) {
+            int attacker = active(state, side);
+            int defender = active(state, opponent);
+            if (attacker < 0 || defender < 0 || action == NO_ACTION) {
+                return defenderFainted;
+            }
+
+            if (!moveHits(state, side, attacker, owner, action, defender, random)) {
+                defenderBraced = false;
+                continue;
+            }
+
+            applyMoveEffects(state, side, attacker, defender, effects);
+            int damage = moveDamage[side][owner][action];
+            if (!defenderBraced) {
+                int totalDamage = calculateDamage(state, side, attacker, owner, action, defender);
+                totalDamage = modifyIncomingDamage(state, opponent, defender, totalDamage);
+                int beforeHealth = health(state, opponent, defender);
+                adjustHealth(state, opponent, defender, -totalDamage);
+                int damageDealt = beforeHealth - health(state, opponent, defender);
+                if ((effects & EFFECT_RECOIL) != 0 && damageDealt > 0) {
+                    adjustHealth(state, side, attacker, -(damageDealt / 4));
+                }
+                if (damageDealt > 0) {
+                    int percent = (effects & EFFECT_BIG_DRAIN) != 0 ? 50
+                            : (effects & EFFECT_SMALL_DRAIN) != 0 ? 25 : 0;
+                    if (percent > 0) {
+                        heal(state, side, attacker, damageDealt * percent / 100);
+                    }
+                }
+            }
+
+            AbilityType defenderAbility = ability[opponent][defender];
+            if (damage > 0 && defenderAbility == AbilityType.SPIKY_BODY) {
+                adjustHealth(state, side, attacker, -10);
+            }
+            if (damage > 0 && defenderAbility == AbilityType.TIRING) {
+                adjustStage(state, side, attacker, SPEED_SHIFT, -1);
+            }
+            if (health(state, opponent, defender) <= 0) {
+                AbilityType attackerAbility = ability[side][attacker];
+                if (attackerAbility == AbilityType.BERSERK) {
+                    adjustStage(state, side, attacker, HEAD_SHIFT, 1);
+                }
+                if (attackerAbility == AbilityType.SCAVENGE) {
+                    heal(state, side, attacker, 20);
+                }
+            }
+            checkFaint(state, opponent);
+            checkFaint(state, side);
+            defenderFainted = defenderFainted || defender != active(state, opponent);
+            if (defenderFainted) {
+                break;
+            }
+            defenderBraced = false;
+        }
+
+        if ((effects & EFFECT_SWITCH_OUT) != 0 && active(state, side) >= 0) {
+            performAutoSwitch(state, side);
+        }
+        return defenderFainted;
+    }
+
+    private boolean moveHits(PackedBattleState state, int side, int attacker, int owner,
+            int action, int defender, Random random) {
+        int opponent = 1 - side;
+        if (ability[opponent][defender] == AbilityType.CAMOUFLAGE) {
+            int statusIndex = state.slotBase(opponent, defender) + SLOT_STATUS;
+            if ((state.data[statusIndex] & CAMOUFLAGE_BIT) == 0) {
+                state.data[statusIndex] |= CAMOUFLAGE_BIT;
+                if (random.nextDouble() < 0.5) {
+                    return false;
+                }
+            }
+        }
+        double accuracy = moveAccuracy[side][owner][action];
+        AbilityType attackerAbility = ability[side][attacker];
+        boolean head = moveHead[side][owner][action];
+        if (attackerAbility == AbilityType.PRECISE && head) {
+            accuracy = Math.min(1.0, accuracy + 0.15);
+        } else if (attackerAbility == AbilityType.CONTROLLED && !head) {
+            accuracy = Math.min(1.0, accuracy + 0.1);
+        }
+        return random.nextDouble() < accuracy;
+    }
+
+    private void applyMoveEffects(PackedBattleState state, int side, int attacker,
+            int defender, int effects) {
+        if (effects == 0) {
+            return;
+        }
+        int opponent = 1 - side;
+        if ((effects & EFFECT_SMALL_HEAL) != 0) {
+            heal(state, side, attacker, 10);
+        }
+        if ((effects & EFFECT_BIG_HEAL) != 0) {
+            heal(state, side, attacker, 30);
+        }
+        if ((effects & EFFECT_AREA_HEAL) != 0) {
+            int mask = state.getAliveMask(side);
+            for (int slot = 0; slot < slots; slot++) {
+                if ((mask & (1 << slot)) != 0) {
+                    heal(state, side, slot, 10);
+                }
+            }
+        }
+        if ((effects & EFFECT_FRENZY) != 0) {
+            adjustStage(state, side, attacker, HEAD_SHIFT, 2);
+        }
+        if ((effects & EFFECT_ADRENALINE) != 0) {
+            adjustStage(state, side, attacker, BODY_SHIFT, 1);
+            adjustStage(state, side, attacker, SPEED_SHIFT, 1);
+        }
+        if ((effects & EFFECT_FATIGUE) != 0) {
+            adjustStage(state, side, attacker, HEAD_SHIFT, -1);
+        }
+        if ((effects & EFFECT_SLOW) != 0) {
+            adjustStage(state, opponent, defender, SPEED_SHIFT, -1);
+        }
+        if ((effects & EFFECT_BLEED) != 0) {
+            state.data[state.slotBase(opponent, defender) + SLOT_STATUS]
+                    |= AILMENT_BLEEDING << AILMENT_SHIFT;
+        }
+        if ((effects & EFFECT_TAILWIND) != 0 && tailwindCounter != 0) {
+            state.data[state.sideBase(side) + TAILWIND] = tailwindCounter;
+        }
+        if ((effects & EFFECT_ROCKS) != 0 && rocksCounter != 0) {
+            state.data[state.sideBase(opponent) + ROCKS] = rocksCounter;
+        }
+    }
+
+    private int calculateDamage(PackedBattleState state, int side, int attacker, int owner,
+            int action, int defender) {
+        double attackStat = moveHead[side][owner][action]
+                ? headAttack[side][attacker]
+                        * STAGE_MULTIPLIERS[stageIndex(state, side, attacker, HEAD_SHIFT)]
+                : bodyAttack[side][attacker]
+                        * STAGE_MULTIPLIERS[stageIndex(state, side, attacker, BODY_SHIFT)];
+        int type = moveType[side][owner][action];
+        double stab = (typeMask[side][attacker] & (1 << type)) != 0 ? 1.5 : 1.0;
+        double typeMultiplier = defence[1 - side][defender][type];
+        long baseDamage = Math.round(moveDamage[side][owner][action] * attackStat * stab
+                * typeMultiplier);
+        return Math.toIntExact(baseDamage);
+    }
+
+    private int modifyIncomingDamage(PackedBattleState state, int side, int defender, int damage) {
+        int health = health(state, side, defender);
+        switch (ability[side][defender]) {
+            case THICK_SKIN:
+                return Math.round(damage * 0.8f);
+            case ARMORED:
+                return Math.max(0, damage - 10);
+            case TOUGH:
+                return health == maxHealth[side][defender] ? Math.round(damage / 3f) : damage;
+            case RESILIENT:
+                return health > 20 && damage >= health ? health - 1 : damage;
+            default:
+                return damage;
+        }
+    }
+
+    private int priority(int side, int owner, int action) {
+        int priority = movePriority[side][owner][action];
+        if (ability[side][owner] == AbilityType.SUPPORTER && moveDamage[side][owner][action] == 0) {
+            priority++;
+        }
+        return priority;
+    }
+
+    private boolean hasBrace(int side, int owner, int action, boolean lastWasBrace) {
+        return action != NO_ACTION
+                && (moveEffects[side][owner][action] & EFFECT_BRACE) != 0
+                && !lastWasBrace;
+    }
+
+    private int modifiedSpeed(PackedBattleState state, int side) {
+        int slot = active(state, side);
+        if (slot < 0) {
+            return 0;
+        }
+        float multiplier = STAGE_MULTIPLIERS[stageIndex(state, side, slot, SPEED_SHIFT)];
+        int effective = Math.round((float) speed[side][slot] * multiplier);
+        if (state.data[state.sideBase(side) + TAILWIND] != 0) {
+            effective = Math.round(effective * 1.5f);
+        }
+        return effective;
+    }
+
+    private boolean applySwitch(PackedBattleState state, int side, int slot) {
+        if (slot < 0 || slot >= slots || !state.isAlive(side, slot)
+                || slot == active(state, side)) {
+            return false;
+        }
+        setActive(state, side, slot);
+        handleEntry(state, side);
+        return true;
+    }
+
+    private void performAutoSwitch(PackedBattleState state, int side) {
+        int mask = state.getAliveMask(side);
+        int current = active(state, side);
+        if (current < 0 || Integer.bitCount(mask) <= 1) {
+            return;
+        }
+        int next = current;
+        do {
+            next = next + 1 == slots ? 0 : next + 1;
+        } while ((mask & (1 << next)) == 0);
+        setActive(state, side, next);
+        handleEntry(state, side);
+    }
+
+    private void setActive(PackedBattleState state, int side, int slot) {
+        int index = state.sideBase(side) + ACTIVE;
+        int current = state.data[index];
+        if (current >= 0 && current != slot) {
+            int statusIndex = state.slotBase(side, current) + SLOT_STATUS;
+            int status = state.data[statusIndex];
+            status &= ~((STAGE_MASK << HEAD_SHIFT) | (STAGE_MASK << BODY_SHIFT)
+                    | (STAGE_MASK << SPEED_SHIFT));
+            status |= PackedBattleState.NEUTRAL_STATUS;
+            state.data[statusIndex] = status;
+        }
+        state.data[index] = slot;
+    }
+
+    private void handleEntry(PackedBattleState state, int side) {
+        int entering = active(state, side);
+        if (entering < 0) {
+            return;
+        }
+        int opponentActive = active(state, 1 - side);
+        if (ability[side][entering] == AbilityType.INTIMIDATE && opponentActive >= 0) {
+            adjustStage(state, 1 - side, opponentActive, HEAD_SHIFT, -1);
+        }
+        if (state.data[state.sideBase(side) + ROCKS] != 0) {
+            int damage = Math.round(maxHealth[side][entering] * 0.125f);
+            adjustHealth(state, side, entering, -damage);
+        }
+    }
+
+    private void checkFaint(PackedBattleState state, int side) {
+        int slot = active(state, side);
+        if (slot < 0 || health(state, side, slot) > 0) {
+            return;
+        }
+        int base = state.sideBase(side);
+        int slotBase = state.slotBase(side, slot);
+        state.data[slotBase + SLOT_HEALTH] = 0;
+        state.data[slotBase + SLOT_STATUS] = PackedBattleState.NEUTRAL_STATUS;
+        int mask = state.data[base + ALIVE] & ~(1 << slot);
+        state.data[base + ALIVE] = mask;
+        state.data[base + ACTIVE] = mask == 0 ? -1 : Integer.numberOfTrailingZeros(mask);
+        handleEntry(state, side);
+        if (mask == 0) {
+            state.data[WINNER] = side == 0 ? 2 : 1;
+        }
+    }
+
+    private void bleed(PackedBattleState state, int side) {
+        int slot = active(state, side);
+        if (slot >= 0 && isBleeding(state, side, slot)) {
+            adjustHealth(state, side, slot, -10);
+        }
+    }
+
+    private static void tickCounters(PackedBattleState state, int side) {
+        int base = state.sideBase(side);
+        if (state.data[base + TAILWIND] > 0) {
+            state.data[base + TAILWIND]--;
+        }
+        if (state.data[base + ROCKS] > 0) {
+            state.data[base + ROCKS]--;
+        }
+    }
+
+    private static void setLastBrace(PackedBattleState state, int side, boolean braced) {
+        int index = state.sideBase(side) + FLAGS;
+        if (braced) {
+            state.data[index] |= FLAG_LAST_BRACE;
+        } else {
+            state.data[index] &= ~FLAG_LAST_BRACE;
+        }
+    }
+
+    private void heal(PackedBattleState state, int side, int slot, int amount) {
+        int healAmount = isBleeding(state, side, slot) ? amount / 2 : amount;
+        adjustHealth(state, side, slot, healAmount);
+    }
+
+    private void adjustHealth(PackedBattleState state, int side, int slot, int amount) {
+        int index = state.slotBase(side, slot) + SLOT_HEALTH;
+        int health = state.data[index] + amount;
+        if (health > maxHealth[side][slot]) {
+            health = maxHealth[side][slot];
+        }
+        if (health < 0) {
+            health = 0;
+        }
+        state.data[index] = health;
+    }
+
+    private static void adjustStage(PackedBattleState state, int side, int slot, int shift,
+            int amount) {
+        int index = state.slotBase(side, slot) + SLOT_STATUS;
+        int status = state.data[index];
+        int stage = ((status >>> shift) & STAGE_MASK) - STAGE_OFFSET + amount;
+        if (stage > 6) {
+            stage = 6;
+        } else if (stage < -6) {
+            stage = -6;
+        }
+        status &= ~(STAGE_MASK << shift);
+        status |= (stage + STAGE_OFFSET) << shift;
+        state.data[index] = status;
+    }
+
+    private static int stageIndex(PackedBattleState state, int side, int slot, int shift) {
+        return (state.data[state.slotBase(side, slot) + SLOT_STATUS] >>> shift) & STAGE_MASK;
+    }
+
+    private static boolean isBleeding(PackedBattleState state, int side, int slot) {
+        int status = state.data[state.slotBase(side, slot) + SLOT_STATUS];
+        return ((status >>> AILMENT_SHIFT) & AILMENT_BLEEDING) != 0;
+    }
+
+    private static int active(PackedBattleState state, int side) {
+        return state.data[state.sideBase(side) + ACTIVE];
+    }
+
+    private static int health(PackedBattleState state, int side, int slot) {
+        return state.data[state.slotBase(side, slot) + SLOT_HEALTH];
+    }
+}
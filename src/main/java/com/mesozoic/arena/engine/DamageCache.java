@@ -0,0 +1,154 @@
+package com.mesozoic.arena.engine;
+
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.MoveType;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe memo of move damage.
+ * <p>
+ * Damage only depends on the attacker's stats, types and relevant attack
+ * stage, the move and the defender's types. Dinosaurs and moves keep their
+ * id when copied, so entries are keyed on the two dinosaur ids, the move id
+ * and the stage. The table is direct mapped: a colliding entry simply
+ * replaces the previous one. Entries are immutable, so concurrent readers
+ * always see a consistent entry.
+ * <p>
+ * For defenders whose ability modifier does not depend on their state (for
+ * example Thick Skin or Armored) the modified damage is cached as well.
+ */
+public final class DamageCache {
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache holding up to the given number of entries, rounded up
+     * to a power of two.
+     */
+    public DamageCache(int capacity) {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the damage of {@link DamageCalculator#calculate(Dinosaur, Dinosaur, Move)}.
+     */
+    public int damage(Dinosaur attacker, Dinosaur defender, Move move) {
+        if (attacker == null || defender == null || move == null) {
+            return DamageCalculator.calculate(attacker, defender, move);
+        }
+        return lookup(attacker, defender, move).damage;
+    }
+
+    /**
+     * Returns the damage after the defender's ability has been applied, as
+     * {@link AbilityEffects#modifyIncomingDamage(Dinosaur, int)} would.
+     */
+    public int incomingDamage(Dinosaur attacker, Dinosaur defender, Move move) {
+        if (attacker == null || defender == null || move == null) {
+            return AbilityEffects.modifyIncomingDamage(defender,
+                    DamageCalculator.calculate(attacker, defender, move));
+        }
+        Entry entry = lookup(attacker, defender, move);
+        if (entry.statelessModifier) {
+            return entry.incoming;
+        }
+        return AbilityEffects.modifyIncomingDamage(defender, entry.damage);
+    }
+
+    private Entry lookup(Dinosaur attacker, Dinosaur defender, Move move) {
+        int stage = move.getKind() == MoveType.HEAD
+                ? attacker.getHeadAttackStage()
+                : attacker.getBodyAttackStage();
+        int attackerId = attacker.getId();
+        int defenderId = defender.getId();
+        int moveId = move.getId();
+        int index = index(attackerId, defenderId, moveId, stage);
+        Entry entry = entries.get(index);
+        if (entry != null && entry.matches(attackerId, defenderId, moveId, stage)) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        int damage = DamageCalculator.calculate(attacker, defender, move);
+        boolean stateless = AbilityEffects.hasStatelessDamageModifier(defender);
+        int incoming = stateless ? AbilityEffects.modifyIncomingDamage(defender, damage) : damage;
+        entry = new Entry(attackerId, defenderId, moveId, stage, damage, incoming, stateless);
+        entries.set(index, entry);
+        return entry;
+    }
+
+    private int index(int attackerId, int defenderId, int moveId, int stage) {
+        int hash = attackerId * 0x9E3779B1;
+        hash = (hash ^ defenderId) * 0x85EBCA6B;
+        hash = (hash ^ moveId) * 0xC2B2AE35;
+        hash ^= stage;
+        hash ^= hash >>> 16;
+        return hash & mask;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache, or 0 when no
+     * lookups have been made.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public int getCapacity() {
+        return entries.length();
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public void clear() {
+        for (int index = 0; index < entries.length(); index++) {
+            entries.set(index, null);
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    private static final class Entry {
+        private final int attackerId;
+        private final int defenderId;
+        private final int moveId;
+        private final int stage;
+        private final int damage;
+        private final int incoming;
+        private final boolean statelessModifier;
+
+        private Entry(int attackerId, int defenderId, int moveId, int stage, int damage,
+                int incoming, boolean statelessModifier) {
+            this.attackerId = attackerId;
+            this.defenderId = defenderId;
+            this.moveId = moveId;
+            this.stage = stage;
+            this.damage = damage;
+            this.incoming = incoming;
+            this.statelessModifier = statelessModifier;
+        }
+
+        private boolean matches(int attackerId, int defenderId, int moveId, int stage) {
+            return this.attackerId == attackerId && this.defenderId == defenderId
+                    && this.moveId == moveId && this.stage == stage;
+        }
+    }
+}
@@ -3,14 +3,32 @@ package com.mesozoic.arena.engine;
 import com.mesozoic.arena.model.Dinosaur;
 import com.mesozoic.arena.model.Move;
 import com.mesozoic.arena.model.MoveType;
+import com.mesozoic.arena.util.Config;
 
 /**
  * Utility for calculating move damage before ability modifiers.
  */
 public final class DamageCalculator {
+    private static final DamageCache CACHE = new DamageCache(Config.damageCacheSize());
+
     private DamageCalculator() {
     }
 
+    /**
+     * Returns the cache shared by all battles, mainly to inspect its hit rate.
+     */
+    public static DamageCache getCache() {
+        return CACHE;
+    }
+
+    /**
+     * Computes the damage a move deals after the defender's ability has been
+     * applied, using the shared {@link DamageCache}.
+     */
+    public static int calculateIncoming(Dinosaur attacker, Dinosaur defender, Move move) {
+        return CACHE.incomingDamage(attacker, defender, move);
+    }
+
     /**
      * Computes the raw damage of a move after factoring in attack stats, STAB
      * and type advantages.
@@ -2,8 +2,11 @@ package com.mesozoic.arena.engine;
 
 import com.mesozoic.arena.model.Effect;
 import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.MoveEffect;
 import com.mesozoic.arena.model.Dinosaur;
 
+import java.util.List;
+
 /**
  * Utility functions for processing move based effects.
  */
@@ -11,14 +14,28 @@ public final class MoveEffects {
     private MoveEffects() {
     }
 
+    /**
+     * Checks if the given move has the specified effect.
+     */
+    public static boolean containsEffect(Move move, MoveEffect effect) {
+        return move != null && move.hasEffect(effect);
+    }
+
     /**
      * Checks if the given move has an effect with the specified name.
+     * Known effects are answered from the move's effect mask.
      */
     public static boolean containsEffect(Move move, String effectName) {
         if (move == null || effectName == null) {
             return false;
         }
-        for (Effect effect : move.getEffects()) {
+        MoveEffect known = MoveEffect.fromName(effectName);
+        if (known != null) {
+            return move.hasEffect(known);
+        }
+        List<Effect> effects = move.getEffectsView();
+        for (int index = 0; index < effects.size(); index++) {
+            Effect effect = effects.get(index);
             if (effectName.equalsIgnoreCase(effect.getName())) {
                 return true;
             }
@@ -34,13 +51,18 @@ public final class MoveEffects {
      * @return {@code true} if the brace effect applies, otherwise {@code false}
      */
     public static boolean hasBraceEffect(Move move, String lastAction) {
-        if (!containsEffect(move, "brace")) {
-            return false;
-        }
-        if (lastAction != null && "brace".equalsIgnoreCase(lastAction)) {
-            return false;
-        }
-        return true;
+        return hasBraceEffect(move, TurnAction.fromDescription(lastAction).isBrace());
+    }
+
+    /**
+     * Determines whether a move with a brace effect should activate.
+     *
+     * @param move         the move being used
+     * @param lastWasBrace whether the same player braced on the previous turn
+     * @return {@code true} if the brace effect applies, otherwise {@code false}
+     */
+    public static boolean hasBraceEffect(Move move, boolean lastWasBrace) {
+        return !lastWasBrace && containsEffect(move, MoveEffect.BRACE);
     }
 
     /**
@@ -49,10 +71,10 @@ public final class MoveEffects {
      * attack effect and {@code 1} otherwise.
      */
     public static int getRepeatCount(Move move) {
-        if (containsEffect(move, "triple attack")) {
+        if (containsEffect(move, MoveEffect.TRIPLE_ATTACK)) {
             return 3;
         }
-        if (containsEffect(move, "double attack")) {
+        if (containsEffect(move, MoveEffect.DOUBLE_ATTACK)) {
             return 2;
         }
         return 1;
@@ -71,9 +93,9 @@ public final class MoveEffects {
             return;
         }
         int percent = 0;
-        if (containsEffect(move, "big drain")) {
+        if (move.hasEffect(MoveEffect.BIG_DRAIN)) {
             percent = 50;
-        } else if (containsEffect(move, "small drain")) {
+        } else if (move.hasEffect(MoveEffect.SMALL_DRAIN)) {
             percent = 25;
         }
         if (percent == 0) {
@@ -0,0 +1,204 @@
+package com.mesozoic.arena.engine;
+
+import java.util.Arrays;
+
+/**
+ * Compact struct-of-arrays encoding of a battle position.
+ * <p>
+ * All mutable battle state lives in a single {@code int[]} so that a position
+ * can be copied, hashed and handed to another thread without touching the
+ * {@code Player}/{@code Dinosaur} object graph. The layout is
+ * <pre>
+ *   [0]                      winner (0 undecided, 1 side one, 2 side two)
+ *   per side, SIDE_HEADER ints:
+ *     active slot (-1 when none), alive mask, tailwind counter,
+ *     rocks counter, flags
+ *   per side and slot, SLOT_STRIDE ints:
+ *     health, status
+ * </pre>
+ * The status word packs the three stages (offset by 6, four bits each), the
+ * ailment bits and the Camouflage flag. Persistent effect counters hold the
+ * remaining turns, {@code -1} for effects without a duration and {@code 0}
+ * when the effect is absent.
+ * <p>
+ * Slots refer to the roster order at the time the position was encoded. A
+ * fainted dinosaur keeps its slot, is cleared from the alive mask and has its
+ * slot reset so that equal positions always compare equal.
+ */
+public final class PackedBattleState {
+    public static final int AILMENT_BLEEDING = 1;
+
+    static final int WINNER = 0;
+    static final int HEADER = 1;
+    static final int ACTIVE = 0;
+    static final int ALIVE = 1;
+    static final int TAILWIND = 2;
+    static final int ROCKS = 3;
+    static final int FLAGS = 4;
+    static final int SIDE_HEADER = 5;
+    static final int SLOT_HEALTH = 0;
+    static final int SLOT_STATUS = 1;
+    static final int SLOT_STRIDE = 2;
+
+    static final int FLAG_LAST_BRACE = 1;
+
+    static final int STAGE_MASK = 0xF;
+    static final int STAGE_OFFSET = 6;
+    static final int HEAD_SHIFT = 0;
+    static final int BODY_SHIFT = 4;
+    static final int SPEED_SHIFT = 8;
+    static final int AILMENT_SHIFT = 12;
+    static final int AILMENT_MASK = 0xFF;
+    static final int CAMOUFLAGE_BIT = 1 << 20;
+    static final int NEUTRAL_STATUS = (STAGE_OFFSET << HEAD_SHIFT)
+            | (STAGE_OFFSET << BODY_SHIFT) | (STAGE_OFFSET << SPEED_SHIFT);
+
+    private final int slots;
+    private final int sideStride;
+    final int[] data;
+
+    /**
+     * Creates an empty position with the given number of roster slots per
+     * side. Every slot starts with neutral stages and no health.
+     */
+    public PackedBattleState(int slotsPerSide) {
+        this.slots = slotsPerSide;
+        this.sideStride = SIDE_HEADER + slotsPerSide * SLOT_STRIDE;
+        this.data = new int[HEADER + 2 * sideStride];
+        for (int side = 0; side < 2; side++) {
+            data[sideBase(side) + ACTIVE] = -1;
+            for (int slot = 0; slot < slotsPerSide; slot++) {
+                data[slotBase(side, slot) + SLOT_STATUS] = NEUTRAL_STATUS;
+            }
+        }
+    }
+
+    private PackedBattleState(PackedBattleState other) {
+        this.slots = other.slots;
+        this.sideStride = other.sideStride;
+        this.data = other.data.clone();
+    }
+
+    /**
+     * Returns an independent copy of this position.
+     */
+    public PackedBattleState copy() {
+        return new PackedBattleState(this);
+    }
+
+    /**
+     * Overwrites this position with the contents of another one of the same
+     * shape without allocating.
+     */
+    public void copyFrom(PackedBattleState other) {
+        System.arraycopy(other.data, 0, data, 0, data.length);
+    }
+
+    public int getSlotsPerSide() {
+        return slots;
+    }
+
+    int sideBase(int side) {
+        return HEADER + side * sideStride;
+    }
+
+    int slotBase(int side, int slot) {
+        return sideBase(side) + SIDE_HEADER + slot * SLOT_STRIDE;
+    }
+
+    /**
+     * Returns 0 while undecided, 1 when side one has won and 2 when side two
+     * has won.
+     */
+    public int getWinner() {
+        return data[WINNER];
+    }
+
+    public int getActiveSlot(int side) {
+        return data[sideBase(side) + ACTIVE];
+    }
+
+    public int getAliveMask(int side) {
+        return data[sideBase(side) + ALIVE];
+    }
+
+    public boolean isAlive(int side, int slot) {
+        return (getAliveMask(side) & (1 << slot)) != 0;
+    }
+
+    public int getTailwind(int side) {
+        return data[sideBase(side) + TAILWIND];
+    }
+
+    public int getRocks(int side) {
+        return data[sideBase(side) + ROCKS];
+    }
+
+    public boolean lastActionWasBrace(int side) {
+        return (data[sideBase(side) + FLAGS] & FLAG_LAST_BRACE) != 0;
+    }
+
+    public int getHealth(int side, int slot) {
+        return data[slotBase(side, slot) + SLOT_HEALTH];
+    }
+
+    public int getHeadAttackStage(int side, int slot) {
+        return stage(side, slot, HEAD_SHIFT);
+    }
+
+    public int getBodyAttackStage(int side, int slot) {
+        return stage(side, slot, BODY_SHIFT);
+    }
+
+    public int getSpeedStage(int side, int slot) {
+        return stage(side, slot, SPEED_SHIFT);
+    }
+
+    public int getAilments(int side, int slot) {
+        return (data[slotBase(side, slot) + SLOT_STATUS] >>> AILMENT_SHIFT) & AILMENT_MASK;
+    }
+
+    public boolean isCamouflageUsed(int side, int slot) {
+        return (data[slotBase(side, slot) + SLOT_STATUS] & CAMOUFLAGE_BIT) != 0;
+    }
+
+    /**
+     * Sums the health of every dinosaur still alive on the given side.
+     */
+    public int getTotalHealth(int side) {
+        int mask = getAliveMask(side);
+        int total = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if ((mask & (1 << slot)) != 0) {
+                total += getHealth(side, slot);
+            }
+        }
+        return total;
+    }
+
+    private int stage(int side, int slot, int shift) {
+        int status = data[slotBase(side, slot) + SLOT_STATUS];
+        return ((status >>> shift) & STAGE_MASK) - STAGE_OFFSET;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PackedBattleState state)) {
+            return false;
+        }
+        return Arrays.equals(data, state.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(data);
+    }
+}
@@ -0,0 +1,100 @@
+package com.mesozoic.arena.engine;
+
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.MoveEffect;
+
+/**
+ * The action one player took in a recorded turn: a move, a switch or nothing.
+ * Moves and switch targets are identified by their ids, while the description
+ * is the text shown in logs and prompts.
+ */
+public final class TurnAction {
+    /**
+     * Kinds of recorded actions.
+     */
+    public enum Kind {
+        NONE,
+        MOVE,
+        SWITCH
+    }
+
+    private static final String SWITCH_PREFIX = "Switch to ";
+
+    /** The action of a player that did nothing. */
+    public static final TurnAction NONE = new TurnAction(Kind.NONE, -1, "None", false);
+
+    private final Kind kind;
+    private final int id;
+    private final String description;
+    private final boolean brace;
+
+    private TurnAction(Kind kind, int id, String description, boolean brace) {
+        this.kind = kind;
+        this.id = id;
+        this.description = description;
+        this.brace = brace;
+    }
+
+    /**
+     * Returns the action of using the given move, or {@link #NONE} if the
+     * move is {@code null}.
+     */
+    public static TurnAction move(Move move) {
+        if (move == null) {
+            return NONE;
+        }
+        return new TurnAction(Kind.MOVE, move.getId(), move.getName(), move.hasEffect(MoveEffect.BRACE));
+    }
+
+    /**
+     * Returns the action of switching to the given dinosaur.
+     */
+    public static TurnAction switchTo(Dinosaur target) {
+        return new TurnAction(Kind.SWITCH, target.getId(), SWITCH_PREFIX + target.getName(), false);
+    }
+
+    /**
+     * Parses a textual action as written by {@link #getDescription()}. The id
+     * of a parsed action is unknown and a move counts as a brace when it is
+     * named Brace.
+     */
+    public static TurnAction fromDescription(String description) {
+        if (description == null || NONE.description.equals(description)) {
+            return NONE;
+        }
+        if (description.startsWith(SWITCH_PREFIX)) {
+            return new TurnAction(Kind.SWITCH, -1, description, false);
+        }
+        return new TurnAction(Kind.MOVE, -1, description, "brace".equalsIgnoreCase(description));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the id of the move used or of the dinosaur switched to, or -1
+     * if it is unknown or there is none.
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Indicates whether this action was a move with the brace effect, which
+     * prevents bracing again on the next turn.
+     */
+    public boolean isBrace() {
+        return brace;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -4,19 +4,31 @@ package com.mesozoic.arena.engine;
  * Captures the actions taken by both players during a single turn.
  */
 public class TurnRecord {
-    private final String playerAction;
-    private final String npcAction;
+    private final TurnAction playerAction;
+    private final TurnAction npcAction;
 
     public TurnRecord(String playerAction, String npcAction) {
-        this.playerAction = playerAction;
-        this.npcAction = npcAction;
+        this(TurnAction.fromDescription(playerAction), TurnAction.fromDescription(npcAction));
+    }
+
+    public TurnRecord(TurnAction playerAction, TurnAction npcAction) {
+        this.playerAction = playerAction == null ? TurnAction.NONE : playerAction;
+        this.npcAction = npcAction == null ? TurnAction.NONE : npcAction;
     }
 
     public String getPlayerAction() {
-        return playerAction;
+        return playerAction.getDescription();
     }
 
     public String getNpcAction() {
+        return npcAction.getDescription();
+    }
+
+    public TurnAction getPlayerTurnAction() {
+        return playerAction;
+    }
+
+    public TurnAction getNpcTurnAction() {
         return npcAction;
     }
 }
@@ -6,10 +6,12 @@ package com.mesozoic.arena.model;
 public class Ability {
     private final String name;
     private final String description;
+    private final AbilityType type;
 
     public Ability(String name, String description) {
         this.name = name;
         this.description = description;
+        this.type = AbilityType.fromName(name);
     }
 
     public String getName() {
@@ -19,4 +21,12 @@ public class Ability {
     public String getDescription() {
         return description;
     }
+
+    /**
+     * Returns the engine behaviour this ability resolved to when it was
+     * created.
+     */
+    public AbilityType getType() {
+        return type;
+    }
 }
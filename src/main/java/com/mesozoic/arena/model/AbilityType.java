@@ -0,0 +1,56 @@
+package com.mesozoic.arena.model;
+
+/**
+ * Abilities understood by the battle engine. Each {@link Ability} resolves its
+ * name into one of these values when it is created so that the engine can
+ * dispatch on it without comparing strings.
+ */
+public enum AbilityType {
+    NONE("None"),
+    INTIMIDATE("Intimidate"),
+    THICK_SKIN("Thick Skin"),
+    ARMORED("Armored"),
+    TOUGH("Tough"),
+    RESILIENT("Resilient"),
+    SUPPORTER("Supporter"),
+    SPIKY_BODY("Spiky Body"),
+    TIRING("Tiring"),
+    BERSERK("Berserk"),
+    SCAVENGE("Scavenge"),
+    PRECISE("Precise"),
+    CONTROLLED("Controlled"),
+    CAMOUFLAGE("Camouflage"),
+    REGENERATOR("Regenerator");
+
+    private static final AbilityType[] VALUES = values();
+
+    private final String abilityName;
+
+    AbilityType(String abilityName) {
+        this.abilityName = abilityName;
+    }
+
+    /**
+     * Returns the name used for this ability in the data files.
+     */
+    public String getAbilityName() {
+        return abilityName;
+    }
+
+    /**
+     * Looks up an ability by name ignoring case.
+     *
+     * @return the matching type or {@link #NONE} if the name is unknown
+     */
+    public static AbilityType fromName(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        for (AbilityType type : VALUES) {
+            if (type.abilityName.equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,166 @@
+package com.mesozoic.arena.model;
+
+import java.util.Arrays;
+
+/**
+ * Records mutations made to players and dinosaurs so that they can be
+ * reverted in reverse order. Used by simulations that apply a round in place
+ * and later undo it instead of copying the whole battle state.
+ */
+public final class BattleJournal {
+    private static final int HEALTH = 0;
+    private static final int HEAD_STAGE = 1;
+    private static final int BODY_STAGE = 2;
+    private static final int SPEED_STAGE = 3;
+    private static final int CAMOUFLAGE = 4;
+    private static final int AILMENT_ADDED = 5;
+    private static final int AILMENT_REMOVED = 6;
+    private static final int ROSTER_REMOVED = 7;
+    private static final int ACTIVE = 8;
+    private static final int QUEUED = 9;
+    private static final int EFFECT_ADDED = 10;
+    private static final int EFFECT_REMOVED = 11;
+    private static final int EFFECT_REMAINING = 12;
+
+    private int[] kinds = new int[64];
+    private int[] values = new int[64];
+    private Object[] targets = new Object[64];
+    private Object[] references = new Object[64];
+    private int size;
+    private boolean recording = true;
+
+    /**
+     * Returns a position that can later be passed to {@link #rollback(int)}.
+     */
+    public int mark() {
+        return size;
+    }
+
+    /**
+     * Reverts every mutation recorded after the given mark.
+     */
+    public void rollback(int mark) {
+        while (size > mark) {
+            size--;
+            revert(kinds[size], targets[size], values[size], references[size]);
+            targets[size] = null;
+            references[size] = null;
+        }
+    }
+
+    /**
+     * Discards all recorded mutations without reverting them.
+     */
+    public void clear() {
+        for (int index = 0; index < size; index++) {
+            targets[index] = null;
+            references[index] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Enables or disables recording. Mutations made while recording is
+     * disabled cannot be reverted.
+     */
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    void recordHealth(Dinosaur dinosaur, int previous) {
+        push(HEALTH, dinosaur, previous, null);
+    }
+
+    void recordHeadAttackStage(Dinosaur dinosaur, int previous) {
+        push(HEAD_STAGE, dinosaur, previous, null);
+    }
+
+    void recordBodyAttackStage(Dinosaur dinosaur, int previous) {
+        push(BODY_STAGE, dinosaur, previous, null);
+    }
+
+    void recordSpeedStage(Dinosaur dinosaur, int previous) {
+        push(SPEED_STAGE, dinosaur, previous, null);
+    }
+
+    void recordCamouflage(Dinosaur dinosaur, boolean previous) {
+        push(CAMOUFLAGE, dinosaur, previous ? 1 : 0, null);
+    }
+
+    void recordAilmentAdded(Dinosaur dinosaur) {
+        push(AILMENT_ADDED, dinosaur, 0, null);
+    }
+
+    void recordAilmentRemoved(Dinosaur dinosaur, int index, Ailment ailment) {
+        push(AILMENT_REMOVED, dinosaur, index, ailment);
+    }
+
+    void recordRosterRemoved(Player player, int index, Dinosaur dinosaur) {
+        push(ROSTER_REMOVED, player, index, dinosaur);
+    }
+
+    void recordActive(Player player, Dinosaur previous) {
+        push(ACTIVE, player, 0, previous);
+    }
+
+    void recordQueued(Player player, Dinosaur previous) {
+        push(QUEUED, player, 0, previous);
+    }
+
+    void recordEffectAdded(Player player) {
+        push(EFFECT_ADDED, player, 0, null);
+    }
+
+    void recordEffectRemoved(Player player, int index, PersistentEffect effect) {
+        push(EFFECT_REMOVED, player, index, effect);
+    }
+
+    void recordEffectRemaining(Player player, PersistentEffect effect, int previous) {
+        push(EFFECT_REMAINING, player, previous, effect);
+    }
+
+    private void push(int kind, Object target, int value, Object reference) {
+        if (!recording) {
+            return;
+        }
+        if (size == kinds.length) {
+            grow();
+        }
+        kinds[size] = kind;
+        targets[size] = target;
+        values[size] = value;
+        references[size] = reference;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        values = Arrays.copyOf(values, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        references = Arrays.copyOf(references, capacity);
+    }
+
+    private static void revert(int kind, Object target, int value, Object reference) {
+        switch (kind) {
+            case HEALTH -> ((Dinosaur) target).restoreHealth(value);
+            case HEAD_STAGE -> ((Dinosaur) target).restoreHeadAttackStage(value);
+            case BODY_STAGE -> ((Dinosaur) target).restoreBodyAttackStage(value);
+            case SPEED_STAGE -> ((Dinosaur) target).restoreSpeedStage(value);
+            case CAMOUFLAGE -> ((Dinosaur) target).restoreCamouflage(value != 0);
+            case AILMENT_ADDED -> ((Dinosaur) target).restoreRemoveLastAilment();
+            case AILMENT_REMOVED -> ((Dinosaur) target).restoreAilment(value, (Ailment) reference);
+            case ROSTER_REMOVED -> ((Player) target).restoreDinosaur(value, (Dinosaur) reference);
+            case ACTIVE -> ((Player) target).restoreActive((Dinosaur) reference);
+            case QUEUED -> ((Player) target).restoreQueued((Dinosaur) reference);
+            case EFFECT_ADDED -> ((Player) target).restoreRemoveLastEffect();
+            case EFFECT_REMOVED -> ((Player) target).restoreEffect(value, (PersistentEffect) reference);
+            case EFFECT_REMAINING -> ((Player) target).restoreEffectRemaining((PersistentEffect) reference, value);
+            default -> throw new IllegalStateException("Unknown journal entry " + kind);
+        }
+    }
+}
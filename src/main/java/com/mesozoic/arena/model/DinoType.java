@@ -18,6 +18,14 @@ public enum DinoType {
     SLASHER,
     SWIMMER;
 
+    /** Number of types, the dimension of {@link #MULTIPLIERS}. */
+    public static final int COUNT = values().length;
+
+    /**
+     * Dense type chart indexed as {@code [defending][attacking]} by ordinal.
+     */
+    private static final double[][] MULTIPLIERS = new double[COUNT][COUNT];
+
     private EnumSet<DinoType> weakTo;
     private EnumSet<DinoType> resistantTo;
 
@@ -54,6 +62,18 @@ public enum DinoType {
 
         SWIMMER.weakTo = EnumSet.of(BLEEDER);
         SWIMMER.resistantTo = EnumSet.of(DEFENDER, SWIMMER);
+
+        for (DinoType defending : values()) {
+            for (DinoType attacking : values()) {
+                double multiplier = 1.0;
+                if (defending.weakTo.contains(attacking)) {
+                    multiplier = 2.0;
+                } else if (defending.resistantTo.contains(attacking)) {
+                    multiplier = 0.5;
+                }
+                MULTIPLIERS[defending.ordinal()][attacking.ordinal()] = multiplier;
+            }
+        }
     }
 
     /**
@@ -63,13 +83,14 @@ public enum DinoType {
         if (attackType == null) {
             return 1.0;
         }
-        if (weakTo.contains(attackType)) {
-            return 2.0;
-        }
-        if (resistantTo.contains(attackType)) {
-            return 0.5;
-        }
-        return 1.0;
+        return MULTIPLIERS[ordinal()][attackType.ordinal()];
+    }
+
+    /**
+     * Returns the bit representing this type in a type mask.
+     */
+    public int mask() {
+        return 1 << ordinal();
     }
 
     /**
@@ -1,12 +1,22 @@
 package com.mesozoic.arena.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a dinosaur combatant.
+ * <p>
+ * Stats, moves, types and the defensive table never change after creation
+ * and are shared by every copy. A dinosaur that a {@link Player} shares with
+ * its copy-on-write copies is frozen: it rejects mutations and each player
+ * replaces it with a private copy before changing it.
  */
 public class Dinosaur {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final int id;
     private final String name;
     private int health;
     private final int maxHealth;
@@ -22,7 +32,16 @@ public class Dinosaur {
     private final List<Move> moves;
     private final List<DinoType> types;
     private final List<Ailment> ailments = new ArrayList<>();
+    private final List<Move> movesView;
+    private final List<DinoType> typesView;
+    private final int typeMask;
+    private final double[] defensiveMultipliers;
+    private final List<Ailment> ailmentsView = Collections.unmodifiableList(ailments);
     private boolean camouflageUsed = false;
+    private volatile boolean shared;
+    private BattleJournal journal;
+    private ZobristHash hash;
+    private long hashOwner;
 
     public Dinosaur(String name, int health, int speed, String imagePath,
                     double headAttack, double bodyAttack, List<Move> moves, Ability ability) {
@@ -39,6 +58,14 @@ public class Dinosaur {
     public Dinosaur(String name, int health, int speed, String imagePath,
                     double headAttack, double bodyAttack, List<Move> moves,
                     Ability ability, int supply, List<DinoType> types) {
+        this(NEXT_ID.getAndIncrement(), name, health, speed, imagePath, headAttack,
+                bodyAttack, moves, ability, supply, types);
+    }
+
+    private Dinosaur(int id, String name, int health, int speed, String imagePath,
+                     double headAttack, double bodyAttack, List<Move> moves,
+                     Ability ability, int supply, List<DinoType> types) {
+        this.id = id;
         this.name = name;
         this.health = health;
         this.maxHealth = health;
@@ -58,6 +85,53 @@ public class Dinosaur {
         } else {
             this.types = new ArrayList<>(types);
         }
+        this.movesView = Collections.unmodifiableList(this.moves);
+        this.typesView = Collections.unmodifiableList(this.types);
+        int mask = 0;
+        for (DinoType type : this.types) {
+            mask |= type.mask();
+        }
+        this.typeMask = mask;
+        this.defensiveMultipliers = new double[DinoType.COUNT];
+        for (DinoType attackType : DinoType.values()) {
+            double multiplier = 1.0;
+            for (DinoType type : this.types) {
+                multiplier *= type.getMultiplierFrom(attackType);
+            }
+            defensiveMultipliers[attackType.ordinal()] = multiplier;
+        }
+    }
+
+    private Dinosaur(Dinosaur source) {
+        this.id = source.id;
+        this.name = source.name;
+        this.health = source.health;
+        this.maxHealth = source.maxHealth;
+        this.speed = source.speed;
+        this.imagePath = source.imagePath;
+        this.ability = source.ability;
+        this.headAttack = source.headAttack;
+        this.bodyAttack = source.bodyAttack;
+        this.supply = source.supply;
+        this.moves = source.moves;
+        this.types = source.types;
+        this.movesView = source.movesView;
+        this.typesView = source.typesView;
+        this.typeMask = source.typeMask;
+        this.defensiveMultipliers = source.defensiveMultipliers;
+        this.headAttackStage = source.headAttackStage;
+        this.bodyAttackStage = source.bodyAttackStage;
+        this.speedStage = source.speedStage;
+        this.ailments.addAll(source.ailments);
+        this.camouflageUsed = source.camouflageUsed;
+    }
+
+    /**
+     * Returns an identifier shared by this dinosaur and all of its copies.
+     * Copies have the same stats, types, ability and moves.
+     */
+    public int getId() {
+        return id;
     }
 
     public String getName() {
@@ -102,10 +176,32 @@ public class Dinosaur {
         return new ArrayList<>(moves);
     }
 
+    /**
+     * Returns a read-only view of the moves without copying them.
+     */
+    public List<Move> getMovesView() {
+        return movesView;
+    }
+
+    public int getMoveCount() {
+        return moves.size();
+    }
+
+    public Move getMove(int index) {
+        return moves.get(index);
+    }
+
     public List<DinoType> getTypes() {
         return new ArrayList<>(types);
     }
 
+    /**
+     * Returns a read-only view of the types without copying them.
+     */
+    public List<DinoType> getTypesView() {
+        return typesView;
+    }
+
     public String printTypes() {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < types.size(); i++) {
@@ -126,35 +222,46 @@ public class Dinosaur {
      * @return {@code true} if the dinosaur has the type, otherwise {@code false}
      */
     public boolean hasType(DinoType searchType) {
-        if (searchType == null) {
-            return false;
-        }
-        for (DinoType currentType : types) {
-            if (currentType == searchType) {
-                return true;
-            }
-        }
-        return false;
+        return searchType != null && (typeMask & searchType.mask()) != 0;
     }
 
+    /**
+     * Returns the types of this dinosaur as a bit mask of
+     * {@link DinoType#mask()} values.
+     */
+    public int getTypeMask() {
+        return typeMask;
+    }
+
+    /**
+     * Returns the combined multiplier applied when this dinosaur is hit by a
+     * move of the given type. Computed once when the dinosaur is created.
+     */
     public double getMultiplierFrom(DinoType attackType) {
-        double multiplier = 1.0;
-        for (DinoType type : types) {
-            multiplier *= type.getMultiplierFrom(attackType);
+        if (attackType == null) {
+            return 1.0;
         }
-        return multiplier;
+        return defensiveMultipliers[attackType.ordinal()];
     }
 
     public List<Ailment> getAilments() {
         return new ArrayList<>(ailments);
     }
 
+    /**
+     * Returns a read-only view of the current ailments. The view reflects
+     * later changes.
+     */
+    public List<Ailment> getAilmentsView() {
+        return ailmentsView;
+    }
+
     public boolean hasAilment(String ailmentName) {
         if (ailmentName == null) {
             return false;
         }
-        for (Ailment ailment : ailments) {
-            if (ailmentName.equalsIgnoreCase(ailment.getName())) {
+        for (int index = 0; index < ailments.size(); index++) {
+            if (ailmentName.equalsIgnoreCase(ailments.get(index).getName())) {
                 return true;
             }
         }
@@ -162,8 +269,13 @@ public class Dinosaur {
     }
 
     public void addAilment(Ailment ailment) {
+        checkMutable();
         if (ailment != null && !hasAilment(ailment.getName())) {
             ailments.add(ailment);
+            toggleAilment(ailment);
+            if (journal != null) {
+                journal.recordAilmentAdded(this);
+            }
         }
     }
 
@@ -171,7 +283,17 @@ public class Dinosaur {
         if (ailmentName == null) {
             return;
         }
-        ailments.removeIf(a -> ailmentName.equalsIgnoreCase(a.getName()));
+        checkMutable();
+        for (int index = ailments.size() - 1; index >= 0; index--) {
+            Ailment ailment = ailments.get(index);
+            if (ailmentName.equalsIgnoreCase(ailment.getName())) {
+                ailments.remove(index);
+                toggleAilment(ailment);
+                if (journal != null) {
+                    journal.recordAilmentRemoved(this, index, ailment);
+                }
+            }
+        }
     }
 
     public boolean isCamouflageUsed() {
@@ -179,10 +301,18 @@ public class Dinosaur {
     }
 
     public void setCamouflageUsed(boolean used) {
+        checkMutable();
+        boolean previous = camouflageUsed;
         this.camouflageUsed = used;
+        rehash(ZobristHash.CAMOUFLAGE, previous ? 1 : 0, used ? 1 : 0);
+        if (journal != null && previous != used) {
+            journal.recordCamouflage(this, previous);
+        }
     }
 
     public void adjustHealth(int amount) {
+        checkMutable();
+        int previous = health;
         health += amount;
         if (health > maxHealth) {
             health = maxHealth;
@@ -190,6 +320,10 @@ public class Dinosaur {
         if (health < 0) {
             health = 0;
         }
+        rehash(ZobristHash.HEALTH, previous, health);
+        if (journal != null && previous != health) {
+            journal.recordHealth(this, previous);
+        }
     }
 
 
@@ -206,21 +340,39 @@ public class Dinosaur {
     }
 
     public void adjustHeadAttackStage(int amount) {
+        checkMutable();
+        int previous = headAttackStage;
         headAttackStage = clampStage(headAttackStage + amount);
+        rehash(ZobristHash.HEAD_STAGE, previous, headAttackStage);
+        if (journal != null && previous != headAttackStage) {
+            journal.recordHeadAttackStage(this, previous);
+        }
     }
 
     public void adjustBodyAttackStage(int amount) {
+        checkMutable();
+        int previous = bodyAttackStage;
         bodyAttackStage = clampStage(bodyAttackStage + amount);
+        rehash(ZobristHash.BODY_STAGE, previous, bodyAttackStage);
+        if (journal != null && previous != bodyAttackStage) {
+            journal.recordBodyAttackStage(this, previous);
+        }
     }
 
     public void adjustSpeedStage(int amount) {
+        checkMutable();
+        int previous = speedStage;
         speedStage = clampStage(speedStage + amount);
+        rehash(ZobristHash.SPEED_STAGE, previous, speedStage);
+        if (journal != null && previous != speedStage) {
+            journal.recordSpeedStage(this, previous);
+        }
     }
 
     public void resetStages() {
-        headAttackStage = 0;
-        bodyAttackStage = 0;
-        speedStage = 0;
+        adjustHeadAttackStage(-headAttackStage);
+        adjustBodyAttackStage(-bodyAttackStage);
+        adjustSpeedStage(-speedStage);
     }
 
     public double getEffectiveHeadAttack() {
@@ -236,24 +388,133 @@ public class Dinosaur {
     }
 
     /**
-     * Creates a deep copy of this dinosaur instance.
+     * Creates an independent copy of this dinosaur. The immutable moves, types
+     * and defensive table are shared rather than cloned.
      */
     public Dinosaur copy() {
-        List<Move> moveCopies = new ArrayList<>();
-        for (Move move : moves) {
-            moveCopies.add(move.copy());
+        return new Dinosaur(this);
+    }
+
+    /**
+     * Indicates whether this dinosaur is shared between copy-on-write players
+     * and therefore must not be modified.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    void markShared() {
+        if (!shared) {
+            shared = true;
         }
-        List<DinoType> typeCopies = new ArrayList<>(types);
-
-        Dinosaur clone = new Dinosaur(name, maxHealth, speed, imagePath,
-                headAttack, bodyAttack, moveCopies, ability, supply, typeCopies);
-        clone.health = health;
-        clone.headAttackStage = headAttackStage;
-        clone.bodyAttackStage = bodyAttackStage;
-        clone.speedStage = speedStage;
-        clone.ailments.addAll(ailments);
-        clone.camouflageUsed = camouflageUsed;
-        return clone;
+    }
+
+    private void checkMutable() {
+        if (shared) {
+            throw new IllegalStateException(name + " is shared and must be copied before it is modified");
+        }
+    }
+
+    /**
+     * Attaches the journal that records mutations of this dinosaur.
+     * Copies never inherit the journal.
+     */
+    void setJournal(BattleJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Attaches the hash this dinosaur updates when it changes. The owning
+     * player adds and removes the dinosaur's features from the hash itself,
+     * see {@link #contribution(long)}. Copies never inherit the hash.
+     */
+    void bindHash(ZobristHash hash, long owner) {
+        this.hash = hash;
+        this.hashOwner = owner;
+    }
+
+    /**
+     * Returns the combined hash keys of this dinosaur's features for the
+     * given owner.
+     */
+    long contribution(long owner) {
+        long value = ZobristHash.key(owner, ZobristHash.HEALTH, health)
+                ^ ZobristHash.key(owner, ZobristHash.HEAD_STAGE, headAttackStage)
+                ^ ZobristHash.key(owner, ZobristHash.BODY_STAGE, bodyAttackStage)
+                ^ ZobristHash.key(owner, ZobristHash.SPEED_STAGE, speedStage)
+                ^ ZobristHash.key(owner, ZobristHash.CAMOUFLAGE, camouflageUsed ? 1 : 0);
+        for (int index = 0; index < ailments.size(); index++) {
+            value ^= ailmentKey(owner, ailments.get(index));
+        }
+        return value;
+    }
+
+    private static long ailmentKey(long owner, Ailment ailment) {
+        String ailmentName = ailment.getName();
+        return ZobristHash.key(owner, ZobristHash.AILMENT,
+                ailmentName == null ? 0 : ailmentName.hashCode());
+    }
+
+    private void toggleAilment(Ailment ailment) {
+        if (hash != null) {
+            hash.toggle(ailmentKey(hashOwner, ailment));
+        }
+    }
+
+    private void rehash(int feature, int previous, int current) {
+        if (hash != null) {
+            hash.replace(hashOwner, feature, previous, current);
+        }
+    }
+
+    /**
+     * Overwrites the mutable state with that of another copy of this
+     * dinosaur. Neither the journal nor the hash is updated.
+     */
+    void restoreState(Dinosaur source) {
+        health = source.health;
+        headAttackStage = source.headAttackStage;
+        bodyAttackStage = source.bodyAttackStage;
+        speedStage = source.speedStage;
+        camouflageUsed = source.camouflageUsed;
+        ailments.clear();
+        for (int index = 0; index < source.ailments.size(); index++) {
+            ailments.add(source.ailments.get(index));
+        }
+    }
+
+    void restoreHealth(int value) {
+        rehash(ZobristHash.HEALTH, health, value);
+        health = value;
+    }
+
+    void restoreHeadAttackStage(int value) {
+        rehash(ZobristHash.HEAD_STAGE, headAttackStage, value);
+        headAttackStage = value;
+    }
+
+    void restoreBodyAttackStage(int value) {
+        rehash(ZobristHash.BODY_STAGE, bodyAttackStage, value);
+        bodyAttackStage = value;
+    }
+
+    void restoreSpeedStage(int value) {
+        rehash(ZobristHash.SPEED_STAGE, speedStage, value);
+        speedStage = value;
+    }
+
+    void restoreCamouflage(boolean value) {
+        rehash(ZobristHash.CAMOUFLAGE, camouflageUsed ? 1 : 0, value ? 1 : 0);
+        camouflageUsed = value;
+    }
+
+    void restoreRemoveLastAilment() {
+        toggleAilment(ailments.remove(ailments.size() - 1));
+    }
+
+    void restoreAilment(int index, Ailment ailment) {
+        ailments.add(index, ailment);
+        toggleAilment(ailment);
     }
 
     private int clampStage(int stage) {
@@ -1,16 +1,23 @@
 package com.mesozoic.arena.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents an action that a dinosaur can perform in battle.
  */
 public class Move {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final int id;
     private final String name;
     private final int damage;
     private final int priority;
     private final List<Effect> effects;
+    private final List<Effect> effectsView;
+    private final int effectMask;
     private final String description;
     private final MoveType kind;
     private final DinoType type;
@@ -30,6 +37,13 @@ public class Move {
 
     public Move(String name, int damage, int priority, String description, MoveType kind,
             DinoType type, List<Effect> effects, double accuracy) {
+        this(NEXT_ID.getAndIncrement(), name, damage, priority, description, kind, type,
+                effects, accuracy);
+    }
+
+    private Move(int id, String name, int damage, int priority, String description,
+            MoveType kind, DinoType type, List<Effect> effects, double accuracy) {
+        this.id = id;
         this.name = name;
         this.damage = damage;
         this.priority = priority;
@@ -38,12 +52,21 @@ public class Move {
         } else {
             this.effects = new ArrayList<>(effects);
         }
+        this.effectsView = Collections.unmodifiableList(this.effects);
+        this.effectMask = computeEffectMask(this.effects);
         this.description = description == null ? "" : description;
         this.kind = kind == null ? MoveType.BODY : kind;
         this.type = type == null ? DinoType.BITER : type;
         this.accuracy = accuracy;
     }
 
+    /**
+     * Returns an identifier shared by this move and all of its copies.
+     */
+    public int getId() {
+        return id;
+    }
+
     public DinoType getType() {
         return type;
     }
@@ -64,6 +87,39 @@ public class Move {
         return new ArrayList<>(effects);
     }
 
+    /**
+     * Returns a read-only view of the effects without copying them.
+     */
+    public List<Effect> getEffectsView() {
+        return effectsView;
+    }
+
+    /**
+     * Returns the effects of this move as a bit mask of {@link MoveEffect}
+     * values. Effects with unknown names are not included.
+     */
+    public int getEffectMask() {
+        return effectMask;
+    }
+
+    /**
+     * Checks whether this move has the given effect.
+     */
+    public boolean hasEffect(MoveEffect effect) {
+        return (effectMask & effect.mask()) != 0;
+    }
+
+    private static int computeEffectMask(List<Effect> effects) {
+        int mask = 0;
+        for (Effect effect : effects) {
+            MoveEffect resolved = MoveEffect.fromName(effect.getName());
+            if (resolved != null) {
+                mask |= resolved.mask();
+            }
+        }
+        return mask;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -89,7 +145,7 @@ public class Move {
      * Returns a deep copy of this move.
      */
     public Move copy() {
-        return new Move(name, damage, priority, description, kind, type,
-                getEffects(), accuracy);
+        return new Move(id, name, damage, priority, description, kind, type,
+                effects, accuracy);
     }
 }
@@ -0,0 +1,66 @@
+package com.mesozoic.arena.model;
+
+/**
+ * Move effects understood by the battle engine. Each move resolves its
+ * {@link Effect} names into a bit mask of these values when it is created.
+ */
+public enum MoveEffect {
+    SMALL_HEAL("small heal"),
+    BIG_HEAL("big heal"),
+    AREA_HEAL("area heal"),
+    FRENZY("frenzy"),
+    ADRENALINE("adrenaline"),
+    FATIGUE("fatigue"),
+    SLOW("slow"),
+    BLEED("bleed"),
+    TAILWIND("tailwind"),
+    ROCKS("rocks"),
+    RECOIL("recoil"),
+    BIG_DRAIN("big drain"),
+    SMALL_DRAIN("small drain"),
+    BRACE("brace"),
+    DOUBLE_ATTACK("double attack"),
+    TRIPLE_ATTACK("triple attack"),
+    SWITCH_OUT("switch out");
+
+    private static final MoveEffect[] VALUES = values();
+
+    private final String effectName;
+    private final int mask;
+
+    MoveEffect(String effectName) {
+        this.effectName = effectName;
+        this.mask = 1 << ordinal();
+    }
+
+    /**
+     * Returns the name used for this effect in the data files.
+     */
+    public String getEffectName() {
+        return effectName;
+    }
+
+    /**
+     * Returns the bit representing this effect in {@link Move#getEffectMask()}.
+     */
+    public int mask() {
+        return mask;
+    }
+
+    /**
+     * Looks up an effect by name ignoring case.
+     *
+     * @return the matching effect or {@code null} if the name is unknown
+     */
+    public static MoveEffect fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (MoveEffect effect : VALUES) {
+            if (effect.effectName.equalsIgnoreCase(name)) {
+                return effect;
+            }
+        }
+        return null;
+    }
+}
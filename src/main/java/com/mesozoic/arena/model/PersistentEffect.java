@@ -6,6 +6,7 @@ package com.mesozoic.arena.model;
 public class PersistentEffect {
     private final PersistentEffectDefinition definition;
     private int remaining;
+    private volatile boolean shared;
 
     public PersistentEffect(PersistentEffectDefinition definition) {
         this.definition = definition;
@@ -38,6 +39,9 @@ public class PersistentEffect {
     }
 
     public void tick() {
+        if (shared) {
+            throw new IllegalStateException(getName() + " is shared and must be copied before it is modified");
+        }
         if (definition.getDuration() <= 0) {
             return;
         }
@@ -46,6 +50,24 @@ public class PersistentEffect {
         }
     }
 
+    /**
+     * Indicates whether this effect is shared between copy-on-write players
+     * and therefore must not be modified.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    void markShared() {
+        if (!shared) {
+            shared = true;
+        }
+    }
+
+    void restoreRemaining(int value) {
+        remaining = value;
+    }
+
     public boolean isExpired() {
         return definition.getDuration() > 0 && remaining <= 0;
     }
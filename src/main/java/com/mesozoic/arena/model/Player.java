@@ -1,19 +1,39 @@
 package com.mesozoic.arena.model;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import com.mesozoic.arena.model.PersistentEffect;
 import com.mesozoic.arena.model.PersistentEffectDefinition;
 
 /**
  * Represents a player controlling a team of dinosaurs.
+ * <p>
+ * {@link #copyOnWrite()} creates copies that share their dinosaurs and
+ * persistent effects with the original. Shared objects are frozen; a player
+ * replaces one with a private copy the first time it hands it out for
+ * modification through {@link #getActiveDinosaur()}, {@link #getDinosaur(int)}
+ * or {@link #getDinosaurs()}, or changes it itself. The read-only views may
+ * return shared objects.
  */
 public class Player {
+    private static final int MAX_SPARES = 32;
+
     private final List<Dinosaur> dinosaurs;
     private Dinosaur activeDinosaur;
     private Dinosaur queuedSwitch;
     private final List<PersistentEffect> persistentEffects = new ArrayList<>();
+    private final List<Dinosaur> dinosaursView;
+    private final List<PersistentEffect> persistentEffectsView =
+            Collections.unmodifiableList(persistentEffects);
+    private BattleJournal journal;
+    private ZobristHash hash;
+    private int hashSide;
+    private Dinosaur[] spares;
+    private int[] spareGenerations;
+    private int spareCount;
+    private int generation;
 
     public Player(List<Dinosaur> dinosaurs) {
         if (dinosaurs == null) {
@@ -24,22 +44,58 @@ public class Player {
         if (!this.dinosaurs.isEmpty()) {
             this.activeDinosaur = this.dinosaurs.get(0);
         }
+        this.dinosaursView = Collections.unmodifiableList(this.dinosaurs);
     }
 
     public List<Dinosaur> getDinosaurs() {
+        for (int index = 0; index < dinosaurs.size(); index++) {
+            claim(index);
+        }
         return new ArrayList<>(dinosaurs);
     }
 
+    /**
+     * Returns a read-only view of the remaining dinosaurs. The view reflects
+     * later changes to the roster. Its dinosaurs may be shared with other
+     * players and must not be modified.
+     */
+    public List<Dinosaur> getDinosaursView() {
+        return dinosaursView;
+    }
+
+    public int getDinosaurCount() {
+        return dinosaurs.size();
+    }
+
+    public Dinosaur getDinosaur(int index) {
+        return claim(index);
+    }
+
+    /**
+     * Returns the active dinosaur without claiming it. Like the dinosaurs of
+     * {@link #getDinosaursView()} it may be shared with other players and
+     * must not be modified.
+     */
+    public Dinosaur getActiveDinosaurView() {
+        return activeDinosaur;
+    }
+
     public Dinosaur getActiveDinosaur() {
+        if (activeDinosaur != null && activeDinosaur.isShared()) {
+            int index = dinosaurs.indexOf(activeDinosaur);
+            if (index >= 0) {
+                claim(index);
+            }
+        }
         return activeDinosaur;
     }
 
     public void setActiveDinosaur(Dinosaur dinosaur) {
         if (dinosaurs.contains(dinosaur)) {
             if (activeDinosaur != null && !activeDinosaur.equals(dinosaur)) {
-                activeDinosaur.resetStages();
+                getActiveDinosaur().resetStages();
             }
-            this.activeDinosaur = dinosaur;
+            changeActive(dinosaur);
         }
     }
 
@@ -48,7 +104,7 @@ public class Player {
      */
     public void queueSwitch(Dinosaur dinosaur) {
         if (dinosaurs.contains(dinosaur) && !dinosaur.equals(activeDinosaur)) {
-            queuedSwitch = dinosaur;
+            changeQueued(dinosaur);
         }
     }
 
@@ -63,7 +119,7 @@ public class Player {
      * Clears any queued switch action.
      */
     public void clearQueuedSwitch() {
-        queuedSwitch = null;
+        changeQueued(null);
     }
 
     /**
@@ -71,7 +127,19 @@ public class Player {
      * dinosaur was active, the next available dinosaur becomes active.
      */
     public void removeDinosaur(Dinosaur dinosaur) {
-        dinosaurs.remove(dinosaur);
+        int index = dinosaurs.indexOf(dinosaur);
+        if (index >= 0) {
+            dinosaurs.remove(index);
+            if (hash != null) {
+                hash.toggle(dinosaur.contribution(ownerOf(dinosaur)));
+                if (!dinosaur.isShared()) {
+                    dinosaur.bindHash(null, 0);
+                }
+            }
+            if (journal != null) {
+                journal.recordRosterRemoved(this, index, dinosaur);
+            }
+        }
         if (dinosaur.equals(activeDinosaur)) {
             activateNextDinosaur();
         }
@@ -82,11 +150,7 @@ public class Player {
      * dinosaur or {@code null} if none remain.
      */
     public Dinosaur activateNextDinosaur() {
-        if (dinosaurs.isEmpty()) {
-            activeDinosaur = null;
-        } else {
-            activeDinosaur = dinosaurs.get(0);
-        }
+        changeActive(dinosaurs.isEmpty() ? null : dinosaurs.get(0));
         return activeDinosaur;
     }
 
@@ -119,13 +183,140 @@ public class Player {
         return clone;
     }
 
+    /**
+     * Creates a copy that shares its dinosaurs and persistent effects with
+     * this player until either of them modifies one. Both players must be
+     * between journal frames, as shared objects can no longer be rolled back.
+     */
+    public Player copyOnWrite() {
+        Player clone = new Player(dinosaurs);
+        for (int index = 0; index < dinosaurs.size(); index++) {
+            dinosaurs.get(index).markShared();
+        }
+        clone.activeDinosaur = activeDinosaur;
+        clone.queuedSwitch = queuedSwitch;
+        for (int index = 0; index < persistentEffects.size(); index++) {
+            PersistentEffect effect = persistentEffects.get(index);
+            effect.markShared();
+            clone.persistentEffects.add(effect);
+        }
+        return clone;
+    }
+
+    /**
+     * Overwrites this player with the state of the source player so that a
+     * scratch simulation player can be reused. Dinosaurs this player held in
+     * earlier calls are recycled by id instead of being copied again, and
+     * persistent effects are shared copy-on-write. Must not be called while
+     * journal frames are pending.
+     */
+    public void restoreFrom(Player source) {
+        ZobristHash attached = hash;
+        int side = hashSide;
+        if (attached != null) {
+            attachHash(null, side);
+        }
+        if (spares == null || spareCount > MAX_SPARES) {
+            spares = new Dinosaur[Math.max(4, source.dinosaurs.size())];
+            spareGenerations = new int[spares.length];
+            spareCount = 0;
+        }
+        generation++;
+        dinosaurs.clear();
+        activeDinosaur = null;
+        queuedSwitch = null;
+        for (int index = 0; index < source.dinosaurs.size(); index++) {
+            Dinosaur original = source.dinosaurs.get(index);
+            Dinosaur spare = spareFor(original);
+            dinosaurs.add(spare);
+            if (original == source.activeDinosaur) {
+                activeDinosaur = spare;
+            }
+            if (original == source.queuedSwitch) {
+                queuedSwitch = spare;
+            }
+        }
+        persistentEffects.clear();
+        for (int index = 0; index < source.persistentEffects.size(); index++) {
+            PersistentEffect effect = source.persistentEffects.get(index);
+            effect.markShared();
+            persistentEffects.add(effect);
+        }
+        if (attached != null) {
+            attachHash(attached, side);
+        }
+    }
+
+    private Dinosaur spareFor(Dinosaur original) {
+        for (int index = 0; index < spareCount; index++) {
+            Dinosaur spare = spares[index];
+            if (spare.getId() == original.getId() && spareGenerations[index] != generation
+                    && !spare.isShared()) {
+                spareGenerations[index] = generation;
+                spare.restoreState(original);
+                spare.setJournal(journal);
+                return spare;
+            }
+        }
+        Dinosaur spare = original.copy();
+        spare.setJournal(journal);
+        if (spareCount == spares.length) {
+            spares = Arrays.copyOf(spares, spareCount * 2);
+            spareGenerations = Arrays.copyOf(spareGenerations, spareCount * 2);
+        }
+        spares[spareCount] = spare;
+        spareGenerations[spareCount] = generation;
+        spareCount++;
+        return spare;
+    }
+
+    /**
+     * Replaces a shared dinosaur with a private copy. The copy has the same
+     * id and state, so neither the hash nor the journal changes.
+     */
+    private Dinosaur claim(int index) {
+        Dinosaur dinosaur = dinosaurs.get(index);
+        if (!dinosaur.isShared()) {
+            return dinosaur;
+        }
+        Dinosaur owned = dinosaur.copy();
+        owned.setJournal(journal);
+        if (hash != null) {
+            owned.bindHash(hash, ownerOf(owned));
+        }
+        dinosaurs.set(index, owned);
+        if (activeDinosaur == dinosaur) {
+            activeDinosaur = owned;
+        }
+        if (queuedSwitch == dinosaur) {
+            queuedSwitch = owned;
+        }
+        return owned;
+    }
+
+    /**
+     * Maps a dinosaur recorded before it was claimed to its current copy.
+     */
+    private Dinosaur resolve(Dinosaur dinosaur) {
+        if (dinosaur == null || !dinosaur.isShared()) {
+            return dinosaur;
+        }
+        for (int index = 0; index < dinosaurs.size(); index++) {
+            Dinosaur candidate = dinosaurs.get(index);
+            if (candidate.getId() == dinosaur.getId()) {
+                return candidate;
+            }
+        }
+        return dinosaur;
+    }
+
     /**
      * Returns the sum of the current health of all dinosaurs on the team.
      */
     public int getTotalHealth() {
         int total = 0;
-        for (Dinosaur dinosaur : dinosaurs) {
-            total += dinosaur.getHealth();
+        for (int index = 0; index < dinosaurs.size(); index++) {
+            total += dinosaurs.get(index).getHealth();
         }
         return total;
     }
@@ -145,12 +336,20 @@ public class Player {
         return new ArrayList<>(persistentEffects);
     }
 
+    /**
+     * Returns a read-only view of the active persistent effects. The view
+     * reflects later changes.
+     */
+    public List<PersistentEffect> getPersistentEffectsView() {
+        return persistentEffectsView;
+    }
+
     public boolean hasPersistentEffect(String name) {
         if (name == null) {
             return false;
         }
-        for (PersistentEffect effect : persistentEffects) {
-            if (name.equalsIgnoreCase(effect.getName())) {
+        for (int index = 0; index < persistentEffects.size(); index++) {
+            if (name.equalsIgnoreCase(persistentEffects.get(index).getName())) {
                 return true;
             }
         }
@@ -161,21 +360,184 @@ public class Player {
         if (effect == null) {
             return;
         }
-        persistentEffects.removeIf(e -> effect.getName().equalsIgnoreCase(e.getName()));
+        for (int index = persistentEffects.size() - 1; index >= 0; index--) {
+            PersistentEffect existing = persistentEffects.get(index);
+            if (effect.getName().equalsIgnoreCase(existing.getName())) {
+                removeEffectAt(index);
+            }
+        }
         persistentEffects.add(effect);
+        toggleEffect(effect, effect.getRemaining());
+        if (journal != null) {
+            journal.recordEffectAdded(this);
+        }
     }
 
     public void tickPersistentEffects() {
-        Iterator<PersistentEffect> it = persistentEffects.iterator();
-        while (it.hasNext()) {
-            PersistentEffect e = it.next();
-            e.tick();
-            if (e.isExpired()) {
-                it.remove();
+        for (int index = persistentEffects.size() - 1; index >= 0; index--) {
+            PersistentEffect effect = persistentEffects.get(index);
+            if (effect.isShared()) {
+                effect = effect.copy();
+                persistentEffects.set(index, effect);
+            }
+            int previous = effect.getRemaining();
+            effect.tick();
+            if (previous != effect.getRemaining()) {
+                toggleEffect(effect, previous);
+                toggleEffect(effect, effect.getRemaining());
+                if (journal != null) {
+                    journal.recordEffectRemaining(this, effect, previous);
+                }
+            }
+            if (effect.isExpired()) {
+                removeEffectAt(index);
+            }
+        }
+    }
+
+    /**
+     * Attaches a journal that records every mutation of this player and its
+     * dinosaurs so that simulations can revert them. Pass {@code null} to
+     * stop recording.
+     */
+    public void attachJournal(BattleJournal journal) {
+        this.journal = journal;
+        for (Dinosaur dinosaur : dinosaurs) {
+            if (!dinosaur.isShared()) {
+                dinosaur.setJournal(journal);
+            }
+        }
+    }
+
+    /**
+     * Attaches a Zobrist hash that this player and its dinosaurs keep up to
+     * date. Pass {@code null} to detach.
+     *
+     * @param hash the hash to maintain
+     * @param side 0 for the first player of a battle, 1 for the second
+     */
+    public void attachHash(ZobristHash hash, int side) {
+        if (this.hash != null) {
+            this.hash.toggle(contribution());
+        }
+        this.hash = hash;
+        this.hashSide = side;
+        for (int index = 0; index < dinosaurs.size(); index++) {
+            Dinosaur dinosaur = dinosaurs.get(index);
+            if (!dinosaur.isShared()) {
+                dinosaur.bindHash(hash, ownerOf(dinosaur));
+            }
+        }
+        if (hash != null) {
+            hash.toggle(contribution());
+        }
+    }
+
+    private long contribution() {
+        long owner = ZobristHash.playerOwner(hashSide);
+        long value = ZobristHash.key(owner, ZobristHash.ACTIVE, idOf(activeDinosaur))
+                ^ ZobristHash.key(owner, ZobristHash.QUEUED, idOf(queuedSwitch));
+        for (int index = 0; index < persistentEffects.size(); index++) {
+            PersistentEffect effect = persistentEffects.get(index);
+            value ^= effectKey(effect, effect.getRemaining());
+        }
+        for (int index = 0; index < dinosaurs.size(); index++) {
+            Dinosaur dinosaur = dinosaurs.get(index);
+            value ^= dinosaur.contribution(ownerOf(dinosaur));
+        }
+        return value;
+    }
+
+    private long ownerOf(Dinosaur dinosaur) {
+        return ZobristHash.dinosaurOwner(hashSide, dinosaur.getId());
+    }
+
+    private static int idOf(Dinosaur dinosaur) {
+        return dinosaur == null ? -1 : dinosaur.getId();
+    }
+
+    private long effectKey(PersistentEffect effect, int remaining) {
+        long owner = ZobristHash.playerOwner(hashSide) ^ ZobristHash.key(0, ZobristHash.EFFECT,
+                effect.getName().hashCode());
+        return ZobristHash.key(owner, ZobristHash.EFFECT, remaining);
+    }
+
+    private void toggleEffect(PersistentEffect effect, int remaining) {
+        if (hash != null) {
+            hash.toggle(effectKey(effect, remaining));
+        }
+    }
+
+    private void rehash(int feature, Dinosaur previous, Dinosaur current) {
+        if (hash != null) {
+            hash.replace(ZobristHash.playerOwner(hashSide), feature, idOf(previous), idOf(current));
+        }
+    }
+
+    private void changeActive(Dinosaur dinosaur) {
+        Dinosaur previous = activeDinosaur;
+        activeDinosaur = dinosaur;
+        rehash(ZobristHash.ACTIVE, previous, dinosaur);
+        if (journal != null && previous != dinosaur) {
+            journal.recordActive(this, previous);
+        }
+    }
+
+    private void changeQueued(Dinosaur dinosaur) {
+        Dinosaur previous = queuedSwitch;
+        queuedSwitch = dinosaur;
+        rehash(ZobristHash.QUEUED, previous, dinosaur);
+        if (journal != null && previous != dinosaur) {
+            journal.recordQueued(this, previous);
+        }
+    }
+
+    private void removeEffectAt(int index) {
+        PersistentEffect removed = persistentEffects.remove(index);
+        toggleEffect(removed, removed.getRemaining());
+        if (journal != null) {
+            journal.recordEffectRemoved(this, index, removed);
+        }
+    }
+
+    void restoreDinosaur(int index, Dinosaur dinosaur) {
+        dinosaurs.add(index, dinosaur);
+        if (hash != null) {
+            hash.toggle(dinosaur.contribution(ownerOf(dinosaur)));
+            if (!dinosaur.isShared()) {
+                dinosaur.bindHash(hash, ownerOf(dinosaur));
             }
         }
     }
 
+    void restoreActive(Dinosaur dinosaur) {
+        Dinosaur current = resolve(dinosaur);
+        rehash(ZobristHash.ACTIVE, activeDinosaur, current);
+        activeDinosaur = current;
+    }
+
+    void restoreQueued(Dinosaur dinosaur) {
+        Dinosaur current = resolve(dinosaur);
+        rehash(ZobristHash.QUEUED, queuedSwitch, current);
+        queuedSwitch = current;
+    }
+
+    void restoreRemoveLastEffect() {
+        PersistentEffect removed = persistentEffects.remove(persistentEffects.size() - 1);
+        toggleEffect(removed, removed.getRemaining());
+    }
+
+    void restoreEffect(int index, PersistentEffect effect) {
+        persistentEffects.add(index, effect);
+        toggleEffect(effect, effect.getRemaining());
+    }
+
+    void restoreEffectRemaining(PersistentEffect effect, int value) {
+        toggleEffect(effect, effect.getRemaining());
+        toggleEffect(effect, value);
+        effect.restoreRemaining(value);
+    }
+
     public int getModifiedSpeed() {
         Dinosaur active = getActiveDinosaur();
         if (active == null) {
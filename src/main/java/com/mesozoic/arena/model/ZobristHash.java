@@ -0,0 +1,69 @@
+package com.mesozoic.arena.model;
+
+/**
+ * Incrementally maintained 64-bit Zobrist hash of a battle position.
+ * <p>
+ * Every hashed feature (a dinosaur's health, stages, Camouflage flag and
+ * ailments, a player's active and queued dinosaur and persistent effects)
+ * contributes a pseudo-random key derived from its owner, the feature and its
+ * value. Players and dinosaurs attached to a hash update it in constant time
+ * whenever one of these features changes, including when a journal rolls a
+ * change back. Dinosaurs removed from the roster stop contributing, so equal
+ * positions hash equally regardless of how they were reached.
+ */
+public final class ZobristHash {
+    static final int HEALTH = 1;
+    static final int HEAD_STAGE = 2;
+    static final int BODY_STAGE = 3;
+    static final int SPEED_STAGE = 4;
+    static final int CAMOUFLAGE = 5;
+    static final int AILMENT = 6;
+    static final int ACTIVE = 7;
+    static final int QUEUED = 8;
+    static final int EFFECT = 9;
+
+    private long value;
+
+    /**
+     * Returns the current hash value.
+     */
+    public long get() {
+        return value;
+    }
+
+    void toggle(long key) {
+        value ^= key;
+    }
+
+    void replace(long owner, int feature, int previous, int current) {
+        if (previous != current) {
+            value ^= key(owner, feature, previous) ^ key(owner, feature, current);
+        }
+    }
+
+    /**
+     * Returns the owner component for a dinosaur on the given side.
+     */
+    static long dinosaurOwner(int side, int dinosaurId) {
+        return ((long) side << 32) | (dinosaurId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the owner component for the player on the given side.
+     */
+    static long playerOwner(int side) {
+        return ((long) (side + 2) << 48);
+    }
+
+    static long key(long owner, int feature, int value) {
+        long seed = owner * 0x9E3779B97F4A7C15L + ((long) feature << 32) + value;
+        return mix(seed);
+    }
+
+    private static long mix(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -77,6 +77,7 @@ public class MainWindow extends JFrame {
 
         refreshDisplay();
         setVisible(true);
+        battle.startPondering();
     }
 
     private void refreshDisplay() {
@@ -229,6 +230,8 @@ public class MainWindow extends JFrame {
         if (battle.getWinner() != null) {
             String msg = (battle.getWinner()==player ? "You win!" : "You lose!");
             JOptionPane.showMessageDialog(this, msg);
+        } else {
+            battle.startPondering();
         }
     }
 
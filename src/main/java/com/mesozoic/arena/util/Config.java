@@ -67,6 +67,128 @@ public final class Config {
         }
     }
 
+    /**
+     * Returns the wall-clock milliseconds an MCTS search may take. A positive
+     * value replaces {@link #mctsIterations()}; zero searches a fixed number
+     * of iterations.
+     */
+    public static long mctsTimeBudgetMs() {
+        String value = properties.getProperty("mctsTimeBudgetMs", "0");
+        try {
+            return Math.max(0L, Long.parseLong(value));
+        } catch (NumberFormatException ignored) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Returns the total MCTS thinking time for one game in milliseconds.
+     * When positive it is split across turns and overrides
+     * {@link #mctsTimeBudgetMs()}; zero turns it off.
+     */
+    public static long mctsGameBudgetMs() {
+        String value = properties.getProperty("mctsGameBudgetMs", "0");
+        try {
+            return Math.max(0L, Long.parseLong(value));
+        } catch (NumberFormatException ignored) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Returns the number of turns a game is expected to last when splitting
+     * {@link #mctsGameBudgetMs()}.
+     */
+    public static int mctsExpectedTurns() {
+        String value = properties.getProperty("mctsExpectedTurns", "20");
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ignored) {
+            return 20;
+        }
+    }
+
+    /**
+     * Returns the number of threads used by the MCTS search. Zero
+     * or less uses every available processor.
+     */
+    public static int mctsThreads() {
+        String value = properties.getProperty("mctsThreads", "0");
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ignored) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns how MCTS threads divide the search, either {@code ROOT} for
+     * independent trees or {@code TREE} for one shared tree.
+     */
+    public static String mctsParallelism() {
+        return properties.getProperty("mctsParallelism", "ROOT");
+    }
+
+    /**
+     * Returns the number of rollouts played from every leaf the MCTS agent
+     * expands. Values above one run the batch in parallel.
+     */
+    public static int mctsLeafRollouts() {
+        String value = properties.getProperty("mctsLeafRollouts", "1");
+        try {
+            return Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException ignored) {
+            return 1;
+        }
+    }
+
+    /**
+     * Returns how the MCTS agent selects moves inside the tree, either
+     * {@code UCT} or {@code DUCT} for decoupled UCT over both players.
+     */
+    public static String mctsSelection() {
+        return properties.getProperty("mctsSelection", "UCT");
+    }
+
+    /**
+     * Indicates whether MCTS trees are open-loop, storing only moves and
+     * statistics below the root and replaying the position on each descent.
+     */
+    public static boolean mctsOpenLoop() {
+        return Boolean.parseBoolean(properties.getProperty("mctsOpenLoop", "false"));
+    }
+
+    /**
+     * Returns how MCTS rollouts score joint actions, either {@code ANALYTIC}
+     * for the closed-form expected health swing or {@code SIMULATION} to
+     * resolve every pair of moves on the state.
+     */
+    public static String mctsRolloutPolicy() {
+        return properties.getProperty("mctsRolloutPolicy", "ANALYTIC");
+    }
+
+    /**
+     * Returns how many rollout replies the MCTS agent caches by position
+     * under the ANALYTIC rollout policy. A value of zero disables the cache.
+     */
+    public static int mctsReplyCacheEntries() {
+        String value = properties.getProperty("mctsReplyCacheEntries", "65536");
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ignored) {
+            return 65536;
+        }
+    }
+
+    /**
+     * Returns how long cached rollout replies are kept, either
+     * {@code SEARCH} to clear them before every search or {@code GAME} to
+     * keep them for the whole game.
+     */
+    public static String mctsReplyCacheScope() {
+        return properties.getProperty("mctsReplyCacheScope", "SEARCH");
+    }
+
     /**
      * Returns the epsilon value used by the MCTS agent.
      */
@@ -91,6 +213,59 @@ public final class Config {
         }
     }
 
+    /**
+     * Returns the memory cap of the MCTS transposition table in megabytes.
+     * A value of zero disables the table.
+     */
+    public static int mctsTranspositionTableMb() {
+        String value = properties.getProperty("mctsTranspositionTableMb", "16");
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ignored) {
+            return 16;
+        }
+    }
+
+    /**
+     * Returns the replacement policy of the MCTS transposition table, either
+     * {@code LEAST_VISITED} or {@code ALWAYS}.
+     */
+    public static String mctsTranspositionReplacement() {
+        return properties.getProperty("mctsTranspositionReplacement", "LEAST_VISITED");
+    }
+
+    /**
+     * Indicates whether rollouts reuse a per-thread scratch state and move
+     * buffers instead of allocating fresh ones.
+     */
+    public static boolean mctsRolloutArena() {
+        return Boolean.parseBoolean(properties.getProperty("mctsRolloutArena", "true"));
+    }
+
+    /**
+     * Indicates whether SIMULATION rollouts are played on the packed battle
+     * kernel instead of copies of the game state.
+     */
+    public static boolean mctsRolloutKernel() {
+        return Boolean.parseBoolean(properties.getProperty("mctsRolloutKernel", "true"));
+    }
+
+    /**
+     * Indicates whether the MCTS agent continues from the matching subtree
+     * of its previous search instead of starting a new tree every turn.
+     */
+    public static boolean mctsReuseTree() {
+        return Boolean.parseBoolean(properties.getProperty("mctsReuseTree", "true"));
+    }
+
+    /**
+     * Indicates whether the MCTS agent searches in the background while the
+     * human player chooses a move.
+     */
+    public static boolean mctsPonder() {
+        return Boolean.parseBoolean(properties.getProperty("mctsPonder", "true"));
+    }
+
     /**
      * Returns the probability of using a minimax move during rollouts.
      */
@@ -115,6 +290,18 @@ public final class Config {
         }
     }
 
+    /**
+     * Returns the number of entries kept by the shared damage cache.
+     */
+    public static int damageCacheSize() {
+        String value = properties.getProperty("damageCacheSize", "4096");
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ignored) {
+            return 4096;
+        }
+    }
+
     /**
      * Returns the supply budget used when generating random teams.
      */
@@ -0,0 +1,88 @@
+package com.mesozoic.arena.util;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * {@link Random} backed by a {@link SplittableRandom}, so it can be passed
+ * wherever the engine expects a {@code Random}.
+ * <p>
+ * Unlike {@code java.util.Random} it keeps no atomic state, which makes it
+ * cheaper but not thread-safe: every thread should own its generator.
+ * {@link #split()} derives independent streams for workers while keeping a
+ * whole game or search reproducible from a single seed.
+ */
+public class SplittableRng extends Random {
+    private SplittableRandom source;
+
+    /**
+     * Creates a generator with an unpredictable seed.
+     */
+    public SplittableRng() {
+        this(new SplittableRandom());
+    }
+
+    public SplittableRng(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private SplittableRng(SplittableRandom source) {
+        super(0L);
+        this.source = source;
+    }
+
+    /**
+     * Returns a new generator whose stream is independent of this one. Both
+     * generators remain usable.
+     */
+    public SplittableRng split() {
+        return new SplittableRng(source.split());
+    }
+
+    /**
+     * Derives an independent generator from any random source: a split when
+     * it is a {@code SplittableRng}, otherwise a generator seeded from its
+     * next value.
+     */
+    public static SplittableRng splitFrom(Random random) {
+        if (random instanceof SplittableRng splittable) {
+            return splittable.split();
+        }
+        return new SplittableRng(random.nextLong());
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        source = new SplittableRandom(seed);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return source.nextInt() >>> (32 - bits);
+    }
+
+    @Override
+    public int nextInt() {
+        return source.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return source.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+        return source.nextLong();
+    }
+
+    @Override
+    public double nextDouble() {
+        return source.nextDouble();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return source.nextBoolean();
+    }
+}
@@ -3,6 +3,7 @@ package com.mesozoic.arena;
 import com.mesozoic.arena.model.Dinosaur;
 import com.mesozoic.arena.model.Move;
 import com.mesozoic.arena.model.Ability;
+import com.mesozoic.arena.model.AbilityType;
 import com.mesozoic.arena.model.Player;
 import com.mesozoic.arena.engine.Battle;
 import com.mesozoic.arena.engine.AbilityEffects;
@@ -308,5 +309,12 @@ public class AbilityEffectsTest {
 
         assertEquals(-1, attacker.getSpeedStage());
     }
-}
 
+    @Test
+    public void testAbilityNamesResolveToTypes() {
+        assertEquals(AbilityType.THICK_SKIN, new Ability("thick skin", "").getType());
+        assertEquals(AbilityType.CAMOUFLAGE, new Ability("Camouflage", "").getType());
+        assertEquals(AbilityType.NONE, new Ability("None", "").getType());
+        assertEquals(AbilityType.NONE, new Ability("Unknown", "").getType());
+    }
+}
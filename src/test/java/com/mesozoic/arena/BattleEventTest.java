@@ -0,0 +1,103 @@
+package com.mesozoic.arena;
+
+import com.mesozoic.arena.engine.Battle;
+import com.mesozoic.arena.engine.BattleEvent;
+import com.mesozoic.arena.engine.TurnAction;
+import com.mesozoic.arena.engine.TurnRecord;
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.Player;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BattleEventTest {
+
+    private static Dinosaur dino(String name, int speed, Move move) {
+        return new Dinosaur(name, 100, speed, "assets/animals/allosaurus.png",
+                1, 1, List.of(move), null);
+    }
+
+    @Test
+    public void testEventsAreStructured() {
+        Move strike = new Move("Strike", 10, 0, List.of());
+        Player p1 = new Player(List.of(dino("Fast", 20, strike)));
+        Player p2 = new Player(List.of(dino("Slow", 10, strike)));
+        Battle battle = new Battle(p1, p2);
+
+        battle.executeRound(strike, strike, new Random(0));
+
+        List<BattleEvent> events = battle.getEvents();
+        assertEquals(2, events.size());
+        BattleEvent first = events.get(0);
+        assertEquals(BattleEvent.Kind.HIT, first.getKind());
+        assertTrue(first.isPlayerOne());
+        assertEquals("Fast", first.getDinosaur());
+        assertEquals("Strike", first.getMove());
+        assertEquals("Slow", first.getTarget());
+        assertEquals(100 - first.getAmount(), first.getRemainingHealth());
+        assertEquals("Turn 1: Player Fast used Strike dealing " + first.getAmount()
+                + " damage. NPC Slow has " + first.getRemainingHealth() + " health left.",
+                battle.getEventLog().get(0));
+    }
+
+    @Test
+    public void testCustomSinkReceivesEvents() {
+        Move strike = new Move("Strike", 10, 0, List.of());
+        Player p1 = new Player(List.of(dino("Fast", 20, strike)));
+        Player p2 = new Player(List.of(dino("Slow", 10, strike)));
+        List<BattleEvent> received = new ArrayList<>();
+        Battle battle = new Battle(p1, p2, null, new ArrayList<>(), true, received::add);
+
+        battle.executeRound(strike, strike, new Random(0));
+
+        assertEquals(2, received.size());
+        assertTrue(battle.getEventLog().isEmpty());
+    }
+
+    @Test
+    public void testSimulationBattleHasNoAgentOrLog() {
+        Move strike = new Move("Strike", 10, 0, List.of());
+        Player p1 = new Player(List.of(dino("Fast", 20, strike)));
+        Player p2 = new Player(List.of(dino("Slow", 10, strike)));
+        Battle battle = Battle.forSimulation(p1, p2, new ArrayList<>(), true);
+
+        battle.executeRound(strike, strike, new Random(0));
+
+        assertNull(battle.getOpponentAI());
+        assertTrue(battle.getEventLog().isEmpty());
+        assertTrue(p2.getActiveDinosaur().getHealth() < 100);
+        assertEquals(1, battle.getMoveHistory().size());
+        assertThrows(IllegalStateException.class, () -> battle.executeRound(strike));
+    }
+
+    @Test
+    public void testTurnRecordsAreTyped() {
+        Move strike = new Move("Strike", 10, 0, List.of());
+        Dinosaur bench = dino("Bench", 5, strike);
+        Player p1 = new Player(List.of(dino("Fast", 20, strike), bench));
+        Player p2 = new Player(List.of(dino("Slow", 10, strike)));
+        Battle battle = Battle.forSimulation(p1, p2, new ArrayList<>(), true);
+
+        p1.queueSwitch(bench);
+        battle.executeRound(null, strike, new Random(0));
+
+        TurnRecord record = battle.getMoveHistory().get(0);
+        assertEquals(TurnAction.Kind.SWITCH, record.getPlayerTurnAction().getKind());
+        assertEquals(bench.getId(), record.getPlayerTurnAction().getId());
+        assertEquals("Switch to Bench", record.getPlayerAction());
+        assertEquals(TurnAction.Kind.MOVE, record.getNpcTurnAction().getKind());
+        assertEquals(strike.getId(), record.getNpcTurnAction().getId());
+        assertEquals("Strike", record.getNpcAction());
+
+        Battle lean = Battle.forSimulation(p1, p2, false);
+        lean.executeRound(strike, strike, new Random(0));
+        assertEquals(1, lean.getRounds());
+        assertTrue(lean.getMoveHistory().isEmpty());
+    }
+}
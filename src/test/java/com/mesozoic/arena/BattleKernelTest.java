@@ -0,0 +1,77 @@
+package com.mesozoic.arena;
+
+import com.mesozoic.arena.ai.mcts.GameState;
+import com.mesozoic.arena.data.DinosaurLoader;
+import com.mesozoic.arena.engine.BattleKernel;
+import com.mesozoic.arena.engine.PackedBattleState;
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.Player;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BattleKernelTest {
+
+    @Test
+    public void testKernelMatchesBattleOnRandomGames() throws Exception {
+        DinosaurLoader loader = new DinosaurLoader();
+        Random choices = new Random(42);
+        for (int game = 0; game < 30; game++) {
+            GameState state = new GameState(loader.createRandomPlayer(),
+                    loader.createRandomPlayer());
+            Player one = state.getPlayerOne();
+            Player two = state.getPlayerTwo();
+            BattleKernel kernel = new BattleKernel(one, two);
+            PackedBattleState packed = kernel.encode(one, two, List.of());
+
+            for (int round = 0; round < 80 && !state.isTerminal(); round++) {
+                Move moveOne = pick(state.availableMovesFor(one), choices);
+                Move moveTwo = pick(state.availableMovesFor(two), choices);
+                int actionOne = kernel.actionFor(packed, 0, one, moveOne);
+                int actionTwo = kernel.actionFor(packed, 1, two, moveTwo);
+                long seed = choices.nextLong();
+
+                state.advance(moveOne, moveTwo, new Random(seed));
+                kernel.executeRound(packed, actionOne, actionTwo, new Random(seed));
+
+                int winner = state.winner() == 1 ? 1 : state.winner() == -1 ? 2 : 0;
+                PackedBattleState expected = kernel.encode(one, two,
+                        state.lastActionWasBrace(one), state.lastActionWasBrace(two), winner);
+                assertEquals(expected, packed, "game " + game + " round " + round);
+            }
+        }
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        Move strike = new Move("Strike", 10, 0, List.of());
+        Dinosaur a = new Dinosaur("A", 50, 60, "", 1, 1, List.of(strike), null);
+        Dinosaur b = new Dinosaur("B", 50, 50, "", 1, 1, List.of(strike), null);
+        Player one = new Player(List.of(a));
+        Player two = new Player(List.of(b));
+        BattleKernel kernel = new BattleKernel(one, two);
+        PackedBattleState packed = kernel.encode(one, two, List.of());
+        PackedBattleState copy = packed.copy();
+
+        kernel.executeRound(packed, 0, 0, new Random(0));
+
+        assertEquals(50, copy.getHealth(1, 0));
+        assertTrue(packed.getHealth(1, 0) < 50);
+        assertNotEquals(copy, packed);
+        copy.copyFrom(packed);
+        assertEquals(packed, copy);
+        assertEquals(packed.hashCode(), copy.hashCode());
+    }
+
+    private static Move pick(List<Move> moves, Random random) {
+        if (moves.isEmpty()) {
+            return null;
+        }
+        return moves.get(random.nextInt(moves.size()));
+    }
+}
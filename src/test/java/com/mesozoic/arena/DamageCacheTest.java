@@ -0,0 +1,78 @@
+package com.mesozoic.arena;
+
+import com.mesozoic.arena.engine.AbilityEffects;
+import com.mesozoic.arena.engine.DamageCache;
+import com.mesozoic.arena.engine.DamageCalculator;
+import com.mesozoic.arena.model.Ability;
+import com.mesozoic.arena.model.DinoType;
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.MoveType;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DamageCacheTest {
+
+    private static Dinosaur dino(String name, Ability ability, DinoType type) {
+        return new Dinosaur(name, 100, 50, "assets/animals/allosaurus.png", 1.3, 0.7,
+                List.of(), ability, List.of(type));
+    }
+
+    @Test
+    public void testCountsHitsAndMisses() {
+        DamageCache cache = new DamageCache(64);
+        Move bite = new Move("Bite", 40, 0, "", MoveType.HEAD, DinoType.BITER, List.of(), 1.0);
+        Dinosaur attacker = dino("Attacker", null, DinoType.BITER);
+        Dinosaur defender = dino("Defender", null, DinoType.GRAZER);
+
+        int expected = DamageCalculator.calculate(attacker, defender, bite);
+        assertEquals(expected, cache.damage(attacker, defender, bite));
+        assertEquals(expected, cache.damage(attacker.copy(), defender.copy(), bite.copy()));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(0.5, cache.getHitRate());
+
+        attacker.adjustHeadAttackStage(2);
+        assertEquals(DamageCalculator.calculate(attacker, defender, bite),
+                cache.damage(attacker, defender, bite));
+        assertEquals(2, cache.getMisses());
+
+        cache.clear();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testIncomingDamageMatchesAbilityModifiers() {
+        DamageCache cache = new DamageCache(64);
+        Move slam = new Move("Slam", 50, 0, "", MoveType.BODY, DinoType.CRUSHER, List.of(), 1.0);
+        Dinosaur attacker = dino("Attacker", null, DinoType.CRUSHER);
+        for (String ability : List.of("Thick Skin", "Armored", "Tough", "Resilient", "Intimidate")) {
+            Dinosaur defender = dino(ability, new Ability(ability, ""), DinoType.BITER);
+            for (int round = 0; round < 3; round++) {
+                int expected = AbilityEffects.modifyIncomingDamage(defender,
+                        DamageCalculator.calculate(attacker, defender, slam));
+                assertEquals(expected, cache.incomingDamage(attacker, defender, slam), ability);
+                defender.adjustHealth(-30);
+            }
+        }
+    }
+
+    @Test
+    public void testCapacityIsBounded() {
+        DamageCache cache = new DamageCache(100);
+        assertEquals(128, cache.getCapacity());
+        Move bite = new Move("Bite", 10, 0, List.of());
+        Dinosaur defender = dino("Defender", null, DinoType.BITER);
+        for (int index = 0; index < 1000; index++) {
+            Dinosaur attacker = dino("Attacker" + index, null, DinoType.BITER);
+            assertEquals(DamageCalculator.calculate(attacker, defender, bite),
+                    cache.damage(attacker, defender, bite));
+        }
+        assertEquals(128, cache.getCapacity());
+    }
+}
@@ -1,17 +1,22 @@
 package com.mesozoic.arena;
 
 import com.mesozoic.arena.ai.mcts.GameState;
+import com.mesozoic.arena.data.DinosaurLoader;
 import com.mesozoic.arena.engine.Battle;
 import com.mesozoic.arena.model.Ability;
 import com.mesozoic.arena.model.Dinosaur;
 import com.mesozoic.arena.model.Player;
 import com.mesozoic.arena.model.Move;
 import com.mesozoic.arena.model.Effect;
+import com.mesozoic.arena.model.SwitchMove;
 import com.mesozoic.arena.util.PersistentEffectRegistry;
+import java.lang.management.ManagementFactory;
 import java.util.Random;
 
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -90,6 +95,30 @@ public class GameStateTest {
         assertTrue(next.getPlayerOne().getActiveDinosaur().getHealth() < 100);
     }
 
+    @Test
+    public void testBraceRuleFollowsEffectNotName() {
+        Move guard = new Move("Guard", 0, 0, List.of(new Effect("brace")));
+        Move strike = new Move("Strike", 10, 0, List.of());
+        Dinosaur defender = new Dinosaur("Defender", 100, 50,
+                "assets/animals/allosaurus.png", 1, 1, List.of(guard), null);
+        Dinosaur attacker = new Dinosaur("Attacker", 100, 50,
+                "assets/animals/allosaurus.png", 1, 1, List.of(strike), null);
+
+        GameState state = new GameState(new Player(List.of(defender)), new Player(List.of(attacker)));
+        state.apply(guard, strike, new Random(0));
+        assertTrue(state.lastActionWasBrace(state.getPlayerOne()));
+        assertEquals(100, state.getPlayerOne().getActiveDinosaur().getHealth());
+        state.apply(guard, strike, new Random(0));
+        assertTrue(state.getPlayerOne().getActiveDinosaur().getHealth() < 100);
+        assertEquals(2, state.getRounds());
+
+        state.undo();
+        assertEquals(1, state.getRounds());
+        assertTrue(state.lastActionWasBrace(state.getPlayerOne()));
+        state.undo();
+        assertFalse(state.lastActionWasBrace(state.getPlayerOne()));
+    }
+
     @Test
     public void testPersistentEffectDurationPreserved() {
         Dinosaur dino = new Dinosaur("A", 100, 50, "", 1, 1, List.of(), null);
@@ -118,4 +147,195 @@ public class GameStateTest {
         int healthInState = state.getPlayerOne().getActiveDinosaur().getHealth();
         assertEquals(healthAfterEntry, healthInState);
     }
+
+    @Test
+    public void testApplyAndUndoRestoresState() {
+        Move bleed = new Move("Bleed", 30, 0, List.of(new Effect("bleed"),
+                new Effect("rocks")));
+        Move frenzy = new Move("Frenzy", 0, 0, List.of(new Effect("frenzy"),
+                new Effect("tailwind")));
+        Dinosaur a = new Dinosaur("A", 50, 60, "", 1, 1, List.of(bleed), null);
+        Dinosaur b = new Dinosaur("B", 40, 50, "", 1, 1, List.of(frenzy), null);
+        Dinosaur c = new Dinosaur("C", 40, 50, "", 1, 1, List.of(frenzy), null);
+        GameState state = new GameState(new Player(List.of(a)), new Player(List.of(b, c)));
+
+        state.apply(bleed, frenzy, new Random(0));
+        state.apply(bleed, frenzy, new Random(0));
+        Dinosaur active = state.getPlayerTwo().getActiveDinosaur();
+        assertEquals("C", active.getName());
+        assertEquals(1, state.getPlayerTwo().getDinosaurs().size());
+
+        state.undo();
+        state.undo();
+
+        Player two = state.getPlayerTwo();
+        assertEquals(2, two.getDinosaurs().size());
+        assertEquals("B", two.getActiveDinosaur().getName());
+        assertEquals(40, two.getActiveDinosaur().getHealth());
+        assertEquals(0, two.getActiveDinosaur().getHeadAttackStage());
+        assertFalse(two.getActiveDinosaur().hasAilment("Bleeding"));
+        assertTrue(two.getPersistentEffects().isEmpty());
+        assertFalse(state.isTerminal());
+
+        GameState fresh = state.nextState(bleed, frenzy, new Random(0));
+        assertEquals(7, fresh.getPlayerTwo().getActiveDinosaur().getHealth());
+        assertEquals(40, state.getPlayerTwo().getActiveDinosaur().getHealth());
+    }
+
+    @Test
+    public void testSimulatedRoundDoesNotAllocate() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported()
+                && threads.isThreadAllocatedMemoryEnabled());
+
+        Move bite = new Move("Bite", 10, 0, List.of(new Effect("bleed"), new Effect("small drain")));
+        Move rage = new Move("Rage", 5, 0, List.of(new Effect("frenzy"), new Effect("slow")));
+        Dinosaur one = new Dinosaur("One", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(bite, rage), new Ability("Regenerator", ""));
+        Dinosaur two = new Dinosaur("Two", 100, 40, "assets/animals/allosaurus.png",
+                1, 1, List.of(bite, rage), new Ability("Thick Skin", ""));
+        GameState state = new GameState(new Player(List.of(one)), new Player(List.of(two)));
+        Random random = new Random(1);
+
+        for (int warmup = 0; warmup < 20000; warmup++) {
+            state.apply(bite, rage, random);
+            state.undo();
+        }
+        int rounds = 10000;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int round = 0; round < rounds; round++) {
+            state.apply(bite, rage, random);
+            state.undo();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(0, allocated / rounds, "bytes allocated per simulated round");
+    }
+
+    @Test
+    public void testIncrementalHashMatchesFreshHash() throws Exception {
+        DinosaurLoader loader = new DinosaurLoader();
+        Random choices = new Random(7);
+        for (int game = 0; game < 20; game++) {
+            GameState state = new GameState(loader.createRandomPlayer(), loader.createRandomPlayer());
+            for (int round = 0; round < 60 && !state.isTerminal(); round++) {
+                List<Move> movesOne = state.availableMovesFor(state.getPlayerOne());
+                List<Move> movesTwo = state.availableMovesFor(state.getPlayerTwo());
+                Move moveOne = movesOne.get(choices.nextInt(movesOne.size()));
+                Move moveTwo = movesTwo.get(choices.nextInt(movesTwo.size()));
+                long seed = choices.nextLong();
+                long before = state.hash();
+
+                state.apply(moveOne, moveTwo, new Random(seed));
+                assertEquals(state.copy().hash(), state.hash(), "game " + game + " round " + round);
+                state.undo();
+                assertEquals(before, state.hash());
+
+                state.advance(moveOne, moveTwo, new Random(seed));
+                assertEquals(state.copy().hash(), state.hash());
+            }
+        }
+    }
+
+    @Test
+    public void testTranspositionsShareHash() {
+        Move wait = new Move("Wait", 0, 0, List.of());
+        Dinosaur first = new Dinosaur("First", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(wait), null);
+        Dinosaur second = new Dinosaur("Second", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(wait), null);
+        Dinosaur enemy = new Dinosaur("Enemy", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(wait), null);
+        GameState state = new GameState(new Player(List.of(first, second)), new Player(List.of(enemy)));
+        long initial = state.hash();
+        Random random = new Random(0);
+
+        state.advance(new SwitchMove(second, 1), wait, random);
+        assertNotEquals(initial, state.hash());
+        state.advance(new SwitchMove(first, 0), wait, random);
+        assertEquals(initial, state.hash());
+    }
+
+    @Test
+    public void testCopySharesUntouchedDinosaurs() {
+        Move bite = new Move("Bite", 10, 0, List.of());
+        Dinosaur first = new Dinosaur("First", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(bite), null);
+        Dinosaur bench = new Dinosaur("Bench", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(bite), null);
+        Dinosaur enemy = new Dinosaur("Enemy", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(bite), null);
+        GameState state = new GameState(new Player(List.of(first, bench)), new Player(List.of(enemy)));
+
+        GameState next = state.nextState(bite, bite, new Random(0));
+
+        assertSame(state.getPlayerOne().getDinosaursView().get(1),
+                next.getPlayerOne().getDinosaursView().get(1));
+        assertNotSame(state.getPlayerOne().getDinosaursView().get(0),
+                next.getPlayerOne().getDinosaursView().get(0));
+        assertEquals(100, state.getPlayerOne().getActiveDinosaur().getHealth());
+        assertTrue(next.getPlayerOne().getActiveDinosaur().getHealth() < 100);
+
+        state.apply(bite, bite, new Random(0));
+        state.undo();
+        assertEquals(next.getPlayerOne().getActiveDinosaur().getHealth(),
+                next.copy().getPlayerOne().getActiveDinosaur().getHealth());
+    }
+
+    @Test
+    public void testListingMovesKeepsCopiesShared() {
+        Move bite = new Move("Bite", 10, 0, List.of());
+        Dinosaur first = new Dinosaur("First", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(bite), null);
+        Dinosaur bench = new Dinosaur("Bench", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(bite), null);
+        Dinosaur enemy = new Dinosaur("Enemy", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(bite), null);
+        GameState state = new GameState(new Player(List.of(first, bench)), new Player(List.of(enemy)));
+        GameState copy = state.copy();
+
+        assertEquals(2, copy.availableMovesFor(copy.getPlayerOne()).size());
+        assertEquals(1, copy.availableMovesFor(copy.getPlayerTwo()).size());
+
+        assertSame(state.getPlayerOne().getActiveDinosaurView(),
+                copy.getPlayerOne().getActiveDinosaurView());
+        assertSame(state.getPlayerTwo().getActiveDinosaurView(),
+                copy.getPlayerTwo().getActiveDinosaurView());
+    }
+
+    @Test
+    public void testCopiesAreUnaffectedByLaterRounds() throws Exception {
+        DinosaurLoader loader = new DinosaurLoader();
+        Random choices = new Random(11);
+        for (int game = 0; game < 10; game++) {
+            GameState state = new GameState(loader.createRandomPlayer(), loader.createRandomPlayer());
+            List<GameState> snapshots = new ArrayList<>();
+            List<Long> hashes = new ArrayList<>();
+            List<Integer> healths = new ArrayList<>();
+            for (int round = 0; round < 40 && !state.isTerminal(); round++) {
+                GameState snapshot = state.copy();
+                snapshots.add(snapshot);
+                hashes.add(snapshot.hash());
+                healths.add(snapshot.getPlayerOne().getTotalHealth()
+                        + snapshot.getPlayerTwo().getTotalHealth());
+                List<Move> movesOne = state.availableMovesFor(state.getPlayerOne());
+                List<Move> movesTwo = state.availableMovesFor(state.getPlayerTwo());
+                Move moveOne = movesOne.get(choices.nextInt(movesOne.size()));
+                Move moveTwo = movesTwo.get(choices.nextInt(movesTwo.size()));
+                state.apply(moveOne, moveTwo, new Random(choices.nextLong()));
+                state.undo();
+                state.advance(moveOne, moveTwo, new Random(choices.nextLong()));
+            }
+            for (int index = 0; index < snapshots.size(); index++) {
+                GameState snapshot = snapshots.get(index);
+                assertEquals(hashes.get(index), snapshot.hash());
+                assertEquals(hashes.get(index), snapshot.copy().hash());
+                assertEquals(healths.get(index), snapshot.getPlayerOne().getTotalHealth()
+                        + snapshot.getPlayerTwo().getTotalHealth());
+            }
+        }
+    }
 }
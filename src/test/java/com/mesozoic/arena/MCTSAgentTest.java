@@ -1,6 +1,8 @@
 package com.mesozoic.arena;
 
 import com.mesozoic.arena.ai.mcts.MCTSAgent;
+import com.mesozoic.arena.ai.mcts.ReplyCache;
+import com.mesozoic.arena.ai.mcts.ThinkTimeManager;
 import com.mesozoic.arena.engine.Battle;
 import com.mesozoic.arena.model.Dinosaur;
 import com.mesozoic.arena.model.Move;
@@ -13,6 +15,7 @@ import com.mesozoic.arena.util.Config;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.Random;
@@ -202,4 +205,405 @@ public class MCTSAgentTest {
             restoreUseLLMAgent(original);
         }
     }
+
+    @Test
+    public void testSeededSearchIsReproducible() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Move strike = new Move("Strike", 10, 0, List.of());
+            Move rage = new Move("Rage", 5, 0, List.of(new Effect("frenzy")));
+            Player self = new Player(List.of(
+                    new Dinosaur("Self", 60, 5, "assets/animals/allosaurus.png", 1, 1,
+                            List.of(strike, rage), null),
+                    new Dinosaur("Bench", 60, 5, "assets/animals/allosaurus.png", 1, 1,
+                            List.of(strike), null)));
+            Player enemy = new Player(List.of(
+                    new Dinosaur("Foe", 60, 5, "assets/animals/allosaurus.png", 1, 1,
+                            List.of(strike, rage), null)));
+
+            MCTSAgent first = new MCTSAgent(200, 99L);
+            MCTSAgent second = new MCTSAgent(200, 99L);
+            first.chooseMove(self, enemy, List.of());
+            second.chooseMove(self, enemy, List.of());
+
+            assertEquals(visitLines(first.getLastStats()), visitLines(second.getLastStats()));
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testSimulationRolloutsStayReproducibleAcrossThreads() throws Exception {
+        String original = setUseLLMAgent(false);
+        Properties props = configProperties();
+        String policy = props.getProperty("mctsRolloutPolicy");
+        props.setProperty("mctsRolloutPolicy", "SIMULATION");
+        try {
+            Move strike = new Move("Strike", 10, 0, List.of());
+            Move rage = new Move("Rage", 5, 0, List.of(new Effect("frenzy")));
+            Player self = new Player(List.of(
+                    new Dinosaur("Self", 60, 5, "assets/animals/allosaurus.png", 1, 1,
+                            List.of(strike, rage), null),
+                    new Dinosaur("Bench", 60, 5, "assets/animals/allosaurus.png", 1, 1,
+                            List.of(strike), null)));
+            Player enemy = new Player(List.of(
+                    new Dinosaur("Foe", 60, 5, "assets/animals/allosaurus.png", 1, 1,
+                            List.of(strike, rage), null)));
+
+            MCTSAgent first = new MCTSAgent(400, 31L);
+            MCTSAgent second = new MCTSAgent(400, 31L);
+            first.setThreads(4);
+            second.setThreads(4);
+            first.chooseMove(self, enemy, List.of());
+            second.chooseMove(self, enemy, List.of());
+
+            assertEquals(visitLines(first.getLastStats()), visitLines(second.getLastStats()));
+            assertEquals(0, first.getReplyCache().size());
+        } finally {
+            if (policy == null) {
+                props.remove("mctsRolloutPolicy");
+            } else {
+                props.setProperty("mctsRolloutPolicy", policy);
+            }
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testRootParallelSearchMergesTrees() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Player self = winOrWaitAgent();
+            Player enemy = strikingFoe();
+
+            MCTSAgent first = new MCTSAgent(400, 7L);
+            MCTSAgent second = new MCTSAgent(400, 7L);
+            first.setThreads(4);
+            second.setThreads(4);
+            Move chosen = first.chooseMove(self, enemy, List.of());
+            second.chooseMove(self, enemy, List.of());
+
+            assertEquals("Win", chosen.getName());
+            assertTrue(first.getLastStats().contains("4 trees"));
+            assertEquals(400, totalVisits(first.getLastStats()));
+            assertEquals(visitLines(first.getLastStats()), visitLines(second.getLastStats()));
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testTreeParallelSearchSharesOneTree() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Player self = winOrWaitAgent();
+            Player enemy = strikingFoe();
+
+            MCTSAgent agent = new MCTSAgent(400, 11L);
+            agent.setThreads(4);
+            agent.setParallelism(MCTSAgent.Parallelism.TREE);
+            Move chosen = agent.chooseMove(self, enemy, List.of());
+
+            assertEquals("Win", chosen.getName());
+            assertTrue(agent.getLastStats().contains("Tree-parallel search: 4 threads"));
+            assertEquals(400, totalVisits(agent.getLastStats()));
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testLeafRolloutsAreBatched() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Player self = winOrWaitAgent();
+            Player enemy = strikingFoe();
+
+            MCTSAgent first = new MCTSAgent(100, 5L);
+            MCTSAgent second = new MCTSAgent(100, 5L);
+            for (MCTSAgent agent : List.of(first, second)) {
+                agent.setThreads(2);
+                agent.setLeafRollouts(4);
+            }
+            Move chosen = first.chooseMove(self, enemy, List.of());
+            second.chooseMove(self, enemy, List.of());
+
+            assertEquals("Win", chosen.getName());
+            assertTrue(first.getLastStats().contains("Rollouts: 400"));
+            assertEquals(400, totalVisits(first.getLastStats()));
+            assertEquals(visitLines(first.getLastStats()), visitLines(second.getLastStats()));
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testTimeBudgetReplacesIterationCount() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Player self = winOrWaitAgent();
+            Player enemy = strikingFoe();
+
+            MCTSAgent agent = new MCTSAgent(1, 3L);
+            agent.setThreads(1);
+            agent.setTimeBudgetMs(50);
+            long start = System.nanoTime();
+            Move chosen = agent.chooseMove(self, enemy, List.of());
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+            assertEquals("Win", chosen.getName());
+            assertTrue(agent.getLastIterations() > 1);
+            assertTrue(elapsedMs >= 50 && elapsedMs < 2000);
+            assertTrue(agent.getLastStats().contains("Iterations: " + agent.getLastIterations()));
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testThinkTimeManagerBudgetsEachTurn() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Player self = winOrWaitAgent();
+            Player enemy = strikingFoe();
+
+            MCTSAgent agent = new MCTSAgent(1, 3L);
+            agent.setThreads(1);
+            ThinkTimeManager manager = new ThinkTimeManager(400, 4);
+            agent.setThinkTimeManager(manager);
+            Move chosen = agent.chooseMove(self, enemy, List.of());
+
+            assertEquals("Win", chosen.getName());
+            assertEquals(1, manager.getTurns());
+            assertTrue(agent.getLastIterations() > 1);
+            assertTrue(manager.getSpentMs() <= manager.getHardLimitMs() + 500);
+            assertTrue(agent.getLastStats().contains("Think time:"));
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testTreeIsReusedOnTheNextTurn() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Move strike = new Move("Strike", 5, 0, List.of());
+            Move bite = new Move("Bite", 8, 0, List.of());
+            Player human = new Player(List.of(new Dinosaur("Human", 200, 5,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike), null)));
+            Player npc = new Player(List.of(new Dinosaur("Npc", 200, 6,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike, bite), null)));
+            MCTSAgent agent = new MCTSAgent(200, 21L);
+            agent.setThreads(1);
+            agent.setReuseTree(true);
+            Battle battle = new Battle(human, npc, agent);
+
+            battle.executeRound(strike);
+            assertEquals(0, agent.getLastReusedVisits());
+            battle.executeRound(strike);
+
+            assertTrue(agent.getLastReusedVisits() > 0);
+            assertTrue(agent.getLastStats().contains("Tree reuse: " + agent.getLastReusedVisits()));
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testPonderingWarmsTheNextSearch() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Move strike = new Move("Strike", 5, 0, List.of());
+            Move bite = new Move("Bite", 8, 0, List.of());
+            Player human = new Player(List.of(new Dinosaur("Human", 200, 5,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike), null)));
+            Player npc = new Player(List.of(new Dinosaur("Npc", 200, 6,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike, bite), null)));
+            MCTSAgent agent = new MCTSAgent(300, 8L);
+            agent.setThreads(1);
+            agent.setPonder(true);
+            Battle battle = new Battle(human, npc, agent);
+
+            battle.startPondering();
+            assertTrue(agent.isPondering());
+            agent.awaitPondering();
+            battle.executeRound(strike);
+
+            assertFalse(agent.isPondering());
+            assertTrue(agent.getLastStats().contains("Pondered 300 iterations"));
+            assertEquals(0, agent.getLastIterations());
+            assertEquals(1, battle.getRounds());
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testTimedPonderingRunsUntilTheHumanCommits() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Move strike = new Move("Strike", 5, 0, List.of());
+            Move bite = new Move("Bite", 8, 0, List.of());
+            Player human = new Player(List.of(new Dinosaur("Human", 200, 5,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike), null)));
+            Player npc = new Player(List.of(new Dinosaur("Npc", 200, 6,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike, bite), null)));
+            MCTSAgent agent = new MCTSAgent(50, 8L);
+            agent.setThreads(1);
+            agent.setTimeBudgetMs(20);
+            agent.setPonder(true);
+            Battle battle = new Battle(human, npc, agent);
+
+            battle.startPondering();
+            Thread.sleep(500);
+            assertTrue(agent.isPondering());
+            battle.executeRound(strike);
+
+            assertFalse(agent.isPondering());
+            assertTrue(agent.getLastPondered() > 50,
+                    "pondered " + agent.getLastPondered() + " iterations");
+            assertEquals(1, battle.getRounds());
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testPonderedTreeSurvivesAHumanSwitch() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Move strike = new Move("Strike", 5, 0, List.of());
+            Move bite = new Move("Bite", 8, 0, List.of());
+            Dinosaur bench = new Dinosaur("Bench", 200, 5,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike), null);
+            Player human = new Player(List.of(new Dinosaur("Human", 200, 5,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike), null), bench));
+            Player npc = new Player(List.of(new Dinosaur("Npc", 200, 6,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike, bite), null)));
+            MCTSAgent agent = new MCTSAgent(300, 8L);
+            agent.setThreads(1);
+            agent.setPonder(true);
+            Battle battle = new Battle(human, npc, agent);
+
+            battle.startPondering();
+            agent.awaitPondering();
+            human.queueSwitch(bench);
+            battle.executeRound(null);
+
+            assertTrue(agent.getLastStats().contains("Pondered 300 iterations"));
+            assertEquals(0, agent.getLastIterations());
+            assertSame(bench, human.getActiveDinosaurView());
+            assertEquals(1, battle.getRounds());
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testDecoupledSelectionChoosesWinningMove() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Player self = winOrWaitAgent();
+            Player enemy = strikingFoe(new Move("Wait", 0, 0, List.of()));
+
+            MCTSAgent agent = new MCTSAgent(300, 13L);
+            agent.setThreads(1);
+            agent.setSelection(MCTSAgent.Selection.DUCT);
+            Move chosen = agent.chooseMove(self, enemy, List.of());
+
+            assertEquals("Win", chosen.getName());
+            assertEquals(2, visitLines(agent.getLastStats()).size());
+            assertEquals(300, totalVisits(agent.getLastStats()));
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testOpenLoopSearchChoosesWinningMove() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Player self = winOrWaitAgent();
+            Player enemy = strikingFoe();
+
+            MCTSAgent agent = new MCTSAgent(200, 17L);
+            agent.setThreads(1);
+            agent.setOpenLoop(true);
+            Move chosen = agent.chooseMove(self, enemy, List.of());
+
+            assertEquals("Win", chosen.getName());
+            assertEquals(200, totalVisits(agent.getLastStats()));
+            assertTrue(agent.getLastStats().contains("Rollouts: 200"));
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    @Test
+    public void testReplyCacheReportsHitRate() throws Exception {
+        String original = setUseLLMAgent(false);
+        try {
+            Move strike = new Move("Strike", 5, 0, List.of());
+            Move bite = new Move("Bite", 8, 0, List.of());
+            Player self = new Player(List.of(new Dinosaur("Agent", 200, 6,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike, bite), null)));
+            Player enemy = new Player(List.of(new Dinosaur("Foe", 200, 5,
+                    "assets/animals/allosaurus.png", 1, 1, List.of(strike), null)));
+
+            MCTSAgent agent = new MCTSAgent(200, 23L);
+            agent.setThreads(1);
+            agent.setReuseTree(false);
+            agent.setReplyCacheScope(ReplyCache.Scope.GAME);
+            ReplyCache cache = agent.getReplyCache();
+            agent.chooseMove(self, enemy, List.of());
+
+            int cached = cache.size();
+            assertTrue(cached > 0);
+            assertTrue(cache.getHits() > 0);
+            assertTrue(agent.getLastStats().contains("Reply cache: " + cache.getHits() + " hits"));
+
+            agent.chooseMove(self, enemy, List.of());
+            assertTrue(cache.size() >= cached);
+        } finally {
+            restoreUseLLMAgent(original);
+        }
+    }
+
+    /**
+     * Returns a player whose dinosaur has Win, which knocks out
+     * {@link #strikingFoe} before it moves, and Wait, which does nothing.
+     */
+    private static Player winOrWaitAgent() {
+        Move win = new Move("Win", 10, 0, List.of());
+        Move wait = new Move("Wait", 0, 0, List.of());
+        return new Player(List.of(new Dinosaur("Agent", 10, 10,
+                "assets/animals/allosaurus.png", 1, 1, List.of(win, wait), null)));
+    }
+
+    /**
+     * Returns a slow, fragile player whose dinosaur has Strike and the given
+     * extra moves.
+     */
+    private static Player strikingFoe(Move... extraMoves) {
+        List<Move> moves = new ArrayList<>();
+        moves.add(new Move("Strike", 10, 0, List.of()));
+        moves.addAll(List.of(extraMoves));
+        return new Player(List.of(new Dinosaur("Foe", 1, 5,
+                "assets/animals/allosaurus.png", 1, 1, moves, null)));
+    }
+
+    private static List<String> visitLines(String stats) {
+        return stats.lines().filter(line -> line.contains("visits")).toList();
+    }
+
+    /**
+     * Sums the visits of the root moves listed in the search statistics.
+     */
+    private static int totalVisits(String stats) {
+        int visits = 0;
+        for (String line : visitLines(stats)) {
+            visits += Integer.parseInt(line.split(": ")[1].split(" ")[0]);
+        }
+        return visits;
+    }
 }
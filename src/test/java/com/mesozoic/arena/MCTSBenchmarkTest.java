@@ -0,0 +1,103 @@
+package com.mesozoic.arena;
+
+import com.mesozoic.arena.ai.mcts.MCTSAgent;
+import com.mesozoic.arena.data.DinosaurLoader;
+import com.mesozoic.arena.model.Player;
+import com.mesozoic.arena.util.Config;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Throughput report for the MCTS search, skipped unless the tests run with
+ * {@code -Dbenchmark=true}, for example
+ * {@code mvn test -Dtest=MCTSBenchmarkTest -Dbenchmark=true}. It prints the
+ * rollouts per second of the ANALYTIC and SIMULATION rollout policies, the
+ * latter on game state copies and on the battle kernel, and the speedup of
+ * root-parallel search over one thread.
+ */
+public class MCTSBenchmarkTest {
+    private static final int ITERATIONS = 4000;
+    private static final int RUNS = 5;
+
+    private static Properties configProperties() throws Exception {
+        Field field = Config.class.getDeclaredField("properties");
+        field.setAccessible(true);
+        return (Properties) field.get(null);
+    }
+
+    private static void restore(Properties props, String key, String previous) {
+        if (previous == null) {
+            props.remove(key);
+        } else {
+            props.setProperty(key, previous);
+        }
+    }
+
+    @Test
+    public void benchmarkRolloutPoliciesAndThreads() throws Exception {
+        Assumptions.assumeTrue(Boolean.getBoolean("benchmark"), "run with -Dbenchmark=true");
+        Properties props = configProperties();
+        String llm = props.getProperty("useLLMAgent");
+        String policy = props.getProperty("mctsRolloutPolicy");
+        String kernel = props.getProperty("mctsRolloutKernel");
+        props.setProperty("useLLMAgent", "false");
+        try {
+            DinosaurLoader loader = new DinosaurLoader();
+            Player self = loader.createRandomPlayer();
+            Player enemy = loader.createRandomPlayer();
+
+            props.setProperty("mctsRolloutPolicy", "SIMULATION");
+            props.setProperty("mctsRolloutKernel", "false");
+            double simulation = iterationsPerSecond(self, enemy, 1);
+            System.out.printf("SIMULATION rollout policy: %,.0f rollouts/s%n", simulation);
+            props.setProperty("mctsRolloutKernel", "true");
+            double packed = iterationsPerSecond(self, enemy, 1);
+            System.out.printf("SIMULATION on the battle kernel: %,.0f rollouts/s, %.2fx game state%n",
+                    packed, packed / simulation);
+            props.setProperty("mctsRolloutPolicy", "ANALYTIC");
+            double analytic = iterationsPerSecond(self, enemy, 1);
+            System.out.printf("ANALYTIC rollout policy: %,.0f rollouts/s, %.2fx SIMULATION%n",
+                    analytic, analytic / simulation);
+
+            int processors = Runtime.getRuntime().availableProcessors();
+            for (int threads = 2; threads <= Math.max(2, processors); threads *= 2) {
+                double rate = iterationsPerSecond(self, enemy, threads);
+                System.out.printf("ANALYTIC, %d root-parallel trees: %,.0f rollouts/s, %.2fx one thread%n",
+                        threads, rate, rate / analytic);
+            }
+        } finally {
+            restore(props, "useLLMAgent", llm);
+            restore(props, "mctsRolloutPolicy", policy);
+            restore(props, "mctsRolloutKernel", kernel);
+        }
+    }
+
+    /**
+     * Returns the best rate over several searches of the same position
+     * after one warm-up search. Every iteration runs one rollout.
+     */
+    private static double iterationsPerSecond(Player self, Player enemy, int threads) {
+        double best = 0.0;
+        for (int run = 0; run <= RUNS; run++) {
+            MCTSAgent agent = new MCTSAgent(ITERATIONS, run);
+            agent.setThreads(threads);
+            agent.setParallelism(MCTSAgent.Parallelism.ROOT);
+            agent.setLeafRollouts(1);
+            agent.setTimeBudgetMs(0);
+            agent.setReuseTree(false);
+            agent.setPonder(false);
+            long start = System.nanoTime();
+            agent.chooseMove(self, enemy, List.of());
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (run > 0) {
+                best = Math.max(best, agent.getLastIterations() / seconds);
+            }
+        }
+        return best;
+    }
+}
@@ -1,21 +1,43 @@
 package com.mesozoic.arena;
 
 import com.mesozoic.arena.ai.mcts.GameState;
+import com.mesozoic.arena.ai.mcts.MCTSAgent;
 import com.mesozoic.arena.ai.mcts.MCTSNode;
+import com.mesozoic.arena.ai.mcts.TranspositionTable;
+import com.mesozoic.arena.data.DinosaurLoader;
+import com.mesozoic.arena.model.DinoType;
 import com.mesozoic.arena.model.Dinosaur;
 import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.MoveType;
 import com.mesozoic.arena.model.Player;
 import com.mesozoic.arena.model.Effect;
+import com.mesozoic.arena.util.Config;
 
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Field;
 import java.util.List;
+import java.util.Properties;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class MCTSNodeTest {
 
+    private static Properties configProperties() throws Exception {
+        Field field = Config.class.getDeclaredField("properties");
+        field.setAccessible(true);
+        return (Properties) field.get(null);
+    }
+
+    private static void restore(Properties props, String key, String previous) {
+        if (previous == null) {
+            props.remove(key);
+        } else {
+            props.setProperty(key, previous);
+        }
+    }
+
     @Test
     public void testRolloutBackpropagateUpdatesScores() {
         Move win = new Move("Win", 10, 0, List.of());
@@ -74,6 +96,138 @@ public class MCTSNodeTest {
         assertEquals("Win", best.getMove().getName());
     }
 
+    @Test
+    public void testVirtualLossSteersSelectionAway() {
+        Move first = new Move("First", 0, 0, List.of());
+        Move second = new Move("Second", 0, 0, List.of());
+        Player p1 = new Player(List.of(new Dinosaur("Defender", 10, 5,
+                "assets/animals/allosaurus.png", 1, 1, List.of(first), null)));
+        Player p2 = new Player(List.of(new Dinosaur("Attacker", 10, 5,
+                "assets/animals/allosaurus.png", 1, 1, List.of(first, second), null)));
+        MCTSNode root = new MCTSNode(new GameState(p1, p2), null, null, 0.0, 0.0);
+        Random random = new Random(0);
+        MCTSNode a = root.expand(random, random);
+        MCTSNode b = root.expand(random, random);
+        a.backpropagate(0.5);
+        b.backpropagate(0.5);
+
+        MCTSNode preferred = root.bestChild();
+        MCTSNode other = preferred == a ? b : a;
+        preferred.addVirtualLoss();
+        assertSame(other, root.bestChild());
+
+        preferred.backpropagate(0.5, true);
+        other.backpropagate(0.5);
+        assertEquals(2, preferred.getVisitCount());
+        assertEquals(1.0, preferred.getWinScore(), 1e-9);
+    }
+
+    @Test
+    public void testTransposedRootMovesKeepTheirOwnVisits() {
+        Move wait = new Move("Wait", 0, 0, List.of());
+        Move idle = new Move("Idle", 0, 0, List.of());
+        Player p1 = new Player(List.of(new Dinosaur("Defender", 10, 5,
+                "assets/animals/allosaurus.png", 1, 1, List.of(wait), null)));
+        Player p2 = new Player(List.of(new Dinosaur("Attacker", 10, 5,
+                "assets/animals/allosaurus.png", 1, 1, List.of(wait, idle), null)));
+        TranspositionTable table = new TranspositionTable(1 << 16, TranspositionTable.Replacement.LEAST_VISITED);
+        MCTSNode root = new MCTSNode(new GameState(p1, p2), null, null, 0.0, 0.0, table);
+        Random random = new Random(0);
+        MCTSNode first = root.expand(random, random);
+        MCTSNode second = root.expand(random, random);
+        assertEquals(first.getState().hash(), second.getState().hash());
+
+        first.backpropagate(0.5);
+        second.backpropagate(0.5);
+        first.backpropagate(1.0);
+
+        assertEquals(2, first.getVisitCount());
+        assertEquals(1, second.getVisitCount());
+        assertEquals(3, root.getVisitCount());
+        assertEquals(1.5, first.getWinScore(), 1e-9);
+        // Both share one position value, so the less visited edge is explored.
+        assertSame(second, root.bestChild());
+    }
+
+    @Test
+    public void testDecoupledNodeCreatesJointChildrenOnDemand() {
+        Move strike = new Move("Strike", 5, 0, List.of());
+        Move bite = new Move("Bite", 8, 0, List.of());
+        Move wait = new Move("Wait", 0, 0, List.of());
+        Player p1 = new Player(List.of(new Dinosaur("Defender", 100, 5,
+                "assets/animals/allosaurus.png", 1, 1, List.of(strike, wait), null)));
+        Player p2 = new Player(List.of(new Dinosaur("Attacker", 100, 6,
+                "assets/animals/allosaurus.png", 1, 1, List.of(strike, bite, wait), null)));
+        MCTSNode root = new MCTSNode(new GameState(p1, p2), null, null, 0.0, 0.0, null, true);
+        Random random = new Random(4);
+
+        for (int i = 0; i < 60; i++) {
+            MCTSNode child = root.selectJoint(random, random, 0.0);
+            assertTrue(child.isDecoupled());
+            child.backpropagate(child.rollout(random));
+        }
+
+        assertEquals(6, root.getChildren().size());
+        assertEquals(60, root.getVisitCount());
+        int visits = 0;
+        for (MCTSNode child : root.getChildren()) {
+            visits += child.getVisitCount();
+        }
+        assertEquals(60, visits);
+    }
+
+    @Test
+    public void testVirtualLossSteersDecoupledSelectionAway() {
+        Move first = new Move("First", 0, 0, List.of());
+        Move second = new Move("Second", 0, 0, List.of());
+        Player p1 = new Player(List.of(new Dinosaur("Defender", 10, 5,
+                "assets/animals/allosaurus.png", 1, 1, List.of(first), null)));
+        Player p2 = new Player(List.of(new Dinosaur("Attacker", 10, 5,
+                "assets/animals/allosaurus.png", 1, 1, List.of(first, second), null)));
+        Random random = new Random(0);
+
+        for (int i = 0; i < 20; i++) {
+            MCTSNode root = new MCTSNode(new GameState(p1, p2), null, null, 0.0, 0.0, null, true);
+            MCTSNode pending = root.selectJoint(random, random, 0.0);
+            pending.addVirtualLoss();
+            MCTSNode other = root.selectJoint(random, random, 0.0);
+            assertNotSame(pending, other);
+
+            pending.backpropagate(0.5, true);
+            other.backpropagate(0.5);
+            assertEquals(1, pending.getVisitCount());
+            assertEquals(2, root.getVisitCount());
+        }
+    }
+
+    @Test
+    public void testOpenLoopNodesStoreNoState() throws Exception {
+        MCTSAgent agent = new MCTSAgent(150, 2L);
+        agent.setThreads(1);
+        agent.setOpenLoop(true);
+        agent.setReuseTree(true);
+        Move strike = new Move("Strike", 20, 0, List.of());
+        Move bite = new Move("Bite", 30, 0, List.of());
+        Player self = new Player(List.of(new Dinosaur("Attacker", 100, 6,
+                "assets/animals/allosaurus.png", 1, 1, List.of(strike, bite), null)));
+        Player enemy = new Player(List.of(new Dinosaur("Defender", 100, 5,
+                "assets/animals/allosaurus.png", 1, 1, List.of(strike), null)));
+        agent.chooseMove(self, enemy, List.of());
+
+        Field field = MCTSAgent.class.getDeclaredField("previousRoots");
+        field.setAccessible(true);
+        MCTSNode root = ((MCTSNode[]) field.get(agent))[0];
+        assertTrue(root.isOpenLoop());
+        assertNotNull(root.getState());
+        assertFalse(root.getChildren().isEmpty());
+        for (MCTSNode child : root.getChildren()) {
+            assertNull(child.getState());
+            for (MCTSNode grandchild : child.getChildren()) {
+                assertNull(grandchild.getState());
+            }
+        }
+    }
+
     @Test
     public void testBestChildEpsilonGreedy() {
         Move first = new Move("First", 0, 0, List.of());
@@ -123,6 +277,29 @@ public class MCTSNodeTest {
         assertEquals(0.0, result);
     }
 
+    @Test
+    public void testAnalyticRolloutPrefersExpectedDamage() {
+        Move wild = new Move("Wild", 30, 0, "", MoveType.BODY, DinoType.BITER, List.of(), 0.1);
+        Move sure = new Move("Sure", 10, 0, List.of());
+        Move wait = new Move("Wait", 0, 0, List.of());
+        Dinosaur attacker = new Dinosaur("Attacker", 40, 5,
+                "assets/animals/allosaurus.png", 1, 1,
+                List.of(wild, sure), null);
+        Dinosaur defender = new Dinosaur("Defender", 40, 5,
+                "assets/animals/allosaurus.png", 1, 1,
+                List.of(wait), null);
+        Player p1 = new Player(List.of(defender));
+        Player p2 = new Player(List.of(attacker));
+        GameState state = new GameState(p1, p2);
+        MCTSNode root = new MCTSNode(state, null, null, 1.0, 1.0);
+
+        double first = root.rollout(new Random(0));
+        assertTrue(first > 1.0);
+        for (int seed = 1; seed < 20; seed++) {
+            assertEquals(first, root.rollout(new Random(seed)));
+        }
+    }
+
     @Test
     public void testRolloutAppliesBraceHistory() {
         Move brace = new Move("Brace", 0, 0, List.of(new Effect("brace")));
@@ -143,4 +320,64 @@ public class MCTSNodeTest {
         double result = root.rollout(simulationRandom);
         assertEquals(-1.05, result);
     }
+
+    @Test
+    public void testRepeatedRolloutsLeaveNodeStatesUntouched() throws Exception {
+        DinosaurLoader loader = new DinosaurLoader();
+        GameState state = new GameState(loader.createRandomPlayer(), loader.createRandomPlayer());
+        MCTSNode root = new MCTSNode(state, null, null, 0.5, 0.5);
+        Random selectionRandom = new Random(3);
+        Random simulationRandom = new Random(4);
+        MCTSNode child = root.expand(selectionRandom, simulationRandom);
+        long rootHash = root.getState().hash();
+        long childHash = child.getState().hash();
+        int rootHealth = root.getState().getPlayerOne().getTotalHealth()
+                + root.getState().getPlayerTwo().getTotalHealth();
+
+        for (int i = 0; i < 50; i++) {
+            root.rollout(simulationRandom);
+            child.rollout(simulationRandom);
+        }
+
+        assertEquals(rootHash, root.getState().hash());
+        assertEquals(rootHash, root.getState().copy().hash());
+        assertEquals(childHash, child.getState().hash());
+        assertEquals(childHash, child.getState().copy().hash());
+        assertEquals(rootHealth, root.getState().getPlayerOne().getTotalHealth()
+                + root.getState().getPlayerTwo().getTotalHealth());
+    }
+
+    @Test
+    public void testKernelRolloutsMatchGameStateRollouts() throws Exception {
+        Properties props = configProperties();
+        String policy = props.getProperty("mctsRolloutPolicy");
+        String kernel = props.getProperty("mctsRolloutKernel");
+        props.setProperty("mctsRolloutPolicy", "SIMULATION");
+        try {
+            DinosaurLoader loader = new DinosaurLoader();
+            Random choices = new Random(7);
+            for (int game = 0; game < 10; game++) {
+                GameState state = new GameState(loader.createRandomPlayer(),
+                        loader.createRandomPlayer());
+                for (int round = 0; round < 6 && !state.isTerminal(); round++) {
+                    props.setProperty("mctsRolloutKernel", "false");
+                    MCTSNode objects = new MCTSNode(state, null, null, 0.6, 0.9);
+                    props.setProperty("mctsRolloutKernel", "true");
+                    MCTSNode packed = new MCTSNode(state, null, null, 0.6, 0.9);
+                    for (int seed = 0; seed < 5; seed++) {
+                        assertEquals(objects.rollout(new Random(seed)),
+                                packed.rollout(new Random(seed)),
+                                "game " + game + " round " + round + " seed " + seed);
+                    }
+                    List<Move> ours = state.availableMovesFor(state.getPlayerTwo());
+                    List<Move> theirs = state.availableMovesFor(state.getPlayerOne());
+                    state = state.nextState(theirs.get(choices.nextInt(theirs.size())),
+                            ours.get(choices.nextInt(ours.size())), choices);
+                }
+            }
+        } finally {
+            restore(props, "mctsRolloutPolicy", policy);
+            restore(props, "mctsRolloutKernel", kernel);
+        }
+    }
 }
@@ -3,6 +3,8 @@ package com.mesozoic.arena;
 import com.mesozoic.arena.model.Dinosaur;
 import com.mesozoic.arena.model.Move;
 import com.mesozoic.arena.model.Effect;
+import com.mesozoic.arena.model.MoveEffect;
+import com.mesozoic.arena.engine.MoveEffects;
 import com.mesozoic.arena.model.Player;
 import com.mesozoic.arena.engine.Battle;
 import com.mesozoic.arena.model.MoveType;
@@ -237,4 +239,17 @@ public class MoveEffectsTest {
         assertEquals(65, attacker.getHealth());
         assertEquals(80, defender.getHealth());
     }
+
+    @Test
+    public void testEffectsAreResolvedIntoMask() {
+        Move move = new Move("Mixed", 10, 0, List.of(new Effect("Small Heal"),
+                new Effect("BLEED"), new Effect("unknown effect")));
+
+        assertEquals(MoveEffect.SMALL_HEAL.mask() | MoveEffect.BLEED.mask(), move.getEffectMask());
+        assertTrue(move.hasEffect(MoveEffect.BLEED));
+        assertFalse(move.hasEffect(MoveEffect.ROCKS));
+        assertTrue(MoveEffects.containsEffect(move, "small heal"));
+        assertTrue(MoveEffects.containsEffect(move, "Unknown Effect"));
+        assertEquals(move.getEffectMask(), move.copy().getEffectMask());
+    }
 }
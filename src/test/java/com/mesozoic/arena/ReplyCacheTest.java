@@ -0,0 +1,117 @@
+package com.mesozoic.arena;
+
+import com.mesozoic.arena.ai.mcts.GameState;
+import com.mesozoic.arena.ai.mcts.ReplyCache;
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Effect;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.Player;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplyCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        ReplyCache cache = new ReplyCache(4);
+        for (long key = 1; key <= 4; key++) {
+            cache.store(key, (int) key);
+        }
+        assertEquals(0, cache.getEvictions());
+
+        cache.store(5L, 5);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(4, cache.size());
+        assertEquals(-1, cache.replyFor(1L));
+        for (long key = 2; key <= 5; key++) {
+            assertEquals((int) key, cache.replyFor(key));
+        }
+    }
+
+    @Test
+    public void testLookupRefreshesEntry() {
+        ReplyCache cache = new ReplyCache(4);
+        for (long key = 1; key <= 4; key++) {
+            cache.store(key, (int) key);
+        }
+        assertEquals(1, cache.replyFor(1L));
+
+        cache.store(5L, 5);
+
+        assertEquals(1, cache.replyFor(1L));
+        assertEquals(-1, cache.replyFor(2L));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testStoringAnExistingKeyReplacesItsReply() {
+        ReplyCache cache = new ReplyCache(4);
+        cache.store(7L, 1);
+        cache.store(7L, 3);
+
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.replyFor(7L));
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void testClearEmptiesCacheAndCounters() {
+        ReplyCache cache = new ReplyCache(256);
+        for (long key = 0; key < 100; key++) {
+            cache.store(key, 0);
+        }
+        cache.replyFor(1L);
+        cache.replyFor(-1L);
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(0.0, cache.getHitRate());
+        assertEquals(-1, cache.replyFor(1L));
+    }
+
+    @Test
+    public void testCapacityMatchesRequestedEntries() {
+        assertEquals(1, new ReplyCache(0).getCapacity());
+        assertEquals(4, new ReplyCache(4).getCapacity());
+        assertEquals(1000, new ReplyCache(1000).getCapacity());
+        assertEquals(65536, new ReplyCache(65536).getCapacity());
+
+        ReplyCache cache = new ReplyCache(1024);
+        for (long key = 0; key < 10_000; key++) {
+            cache.store(key * 0x9E3779B97F4A7C15L, 0);
+        }
+        assertTrue(cache.size() <= cache.getCapacity());
+        assertEquals(10_000 - cache.size(), cache.getEvictions());
+    }
+
+    @Test
+    public void testBraceFlagsSeparateKeys() {
+        Move brace = new Move("Brace", 0, 0, List.of(new Effect("brace")));
+        Move wait = new Move("Wait", 0, 0, List.of());
+        GameState state = new GameState(
+                new Player(List.of(new Dinosaur("One", 100, 50, "assets/animals/allosaurus.png",
+                        1, 1, List.of(brace, wait), null))),
+                new Player(List.of(new Dinosaur("Two", 100, 40, "assets/animals/allosaurus.png",
+                        1, 1, List.of(wait), null))));
+        GameState braced = state.nextState(brace, wait, new Random(0));
+        GameState waited = state.nextState(wait, wait, new Random(0));
+        assertEquals(braced.hash(), waited.hash());
+
+        ReplyCache cache = new ReplyCache(64);
+        cache.store(ReplyCache.key(braced, true), 0);
+
+        assertEquals(-1, cache.replyFor(ReplyCache.key(waited, true)));
+        assertEquals(-1, cache.replyFor(ReplyCache.key(braced, false)));
+        assertEquals(0, cache.replyFor(ReplyCache.key(braced, true)));
+    }
+}
@@ -0,0 +1,65 @@
+package com.mesozoic.arena;
+
+import com.mesozoic.arena.engine.Battle;
+import com.mesozoic.arena.model.Ability;
+import com.mesozoic.arena.model.DinoType;
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.MoveType;
+import com.mesozoic.arena.model.Player;
+import com.mesozoic.arena.util.SplittableRng;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SplittableRngTest {
+
+    @Test
+    public void testSameSeedGivesSameStreams() {
+        SplittableRng first = new SplittableRng(42);
+        SplittableRng second = new SplittableRng(42);
+        SplittableRng firstChild = first.split();
+        SplittableRng secondChild = second.split();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextLong(), second.nextLong());
+            assertEquals(firstChild.nextDouble(), secondChild.nextDouble());
+            assertEquals(first.nextInt(7), second.nextInt(7));
+        }
+    }
+
+    @Test
+    public void testSplitStreamsDiffer() {
+        SplittableRng parent = new SplittableRng(7);
+        SplittableRng one = parent.split();
+        SplittableRng two = parent.split();
+        int equal = 0;
+        for (int i = 0; i < 100; i++) {
+            if (one.nextLong() == two.nextLong()) {
+                equal++;
+            }
+        }
+        assertEquals(0, equal);
+    }
+
+    @Test
+    public void testSeededBattleIsReproducible() {
+        assertEquals(playSeededBattle(5), playSeededBattle(5));
+    }
+
+    private static List<String> playSeededBattle(long seed) {
+        Move strike = new Move("Strike", 20, 0, "", MoveType.BODY, DinoType.BITER, List.of(), 0.5);
+        Dinosaur one = new Dinosaur("One", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(strike), new Ability("Camouflage", ""));
+        Dinosaur two = new Dinosaur("Two", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(strike), null);
+        Battle battle = new Battle(new Player(List.of(one)), new Player(List.of(two)));
+        battle.setRandom(new SplittableRng(seed));
+        for (int round = 0; round < 10 && battle.getWinner() == null; round++) {
+            battle.executeRound(strike, strike);
+        }
+        return battle.getEventLog();
+    }
+}
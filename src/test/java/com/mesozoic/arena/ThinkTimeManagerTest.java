@@ -0,0 +1,62 @@
+package com.mesozoic.arena;
+
+import com.mesozoic.arena.ai.mcts.ThinkTimeManager;
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.Player;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThinkTimeManagerTest {
+
+    private static Player player(int health, int count) {
+        Move strike = new Move("Strike", 10, 0, List.of());
+        Dinosaur first = new Dinosaur("First", 100, 5, "assets/animals/allosaurus.png", 1, 1,
+                List.of(strike), null);
+        first.adjustHealth(health - 100);
+        if (count == 1) {
+            return new Player(List.of(first));
+        }
+        return new Player(List.of(first, new Dinosaur("Second", 100, 5,
+                "assets/animals/allosaurus.png", 1, 1, List.of(strike), null)));
+    }
+
+    @Test
+    public void testCriticalTurnsGetMoreTimeThanForcedOnes() {
+        ThinkTimeManager calm = new ThinkTimeManager(20_000, 20);
+        calm.record(0);
+        calm.record(0);
+        long normal = calm.allocate(player(100, 2), player(100, 2), 3);
+
+        ThinkTimeManager tense = new ThinkTimeManager(20_000, 20);
+        tense.record(0);
+        tense.record(0);
+        long critical = tense.allocate(player(40, 2), player(100, 2), 3);
+
+        ThinkTimeManager forced = new ThinkTimeManager(20_000, 20);
+        long single = forced.allocate(player(100, 1), player(100, 1), 1);
+
+        assertEquals(1111, normal);
+        assertTrue(critical > normal);
+        assertEquals(1, single);
+        assertTrue(tense.getHardLimitMs() > critical);
+    }
+
+    @Test
+    public void testSharesComeFromTheRemainingBudget() {
+        ThinkTimeManager manager = new ThinkTimeManager(1_000, 2);
+        long first = manager.allocate(player(100, 2), player(100, 2), 3);
+        assertTrue(first <= 500);
+        manager.record(900);
+        assertEquals(100, manager.getRemainingMs());
+        assertTrue(manager.allocate(player(100, 2), player(100, 2), 3) <= 50);
+        assertTrue(manager.getHardLimitMs() <= 50);
+        manager.record(50);
+        assertEquals(2, manager.getTurns());
+        assertEquals(950, manager.getSpentMs());
+    }
+}
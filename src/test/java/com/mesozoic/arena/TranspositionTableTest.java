@@ -0,0 +1,182 @@
+package com.mesozoic.arena;
+
+import com.mesozoic.arena.ai.mcts.GameState;
+import com.mesozoic.arena.ai.mcts.MCTSNode;
+import com.mesozoic.arena.ai.mcts.TranspositionTable;
+import com.mesozoic.arena.model.Dinosaur;
+import com.mesozoic.arena.model.Effect;
+import com.mesozoic.arena.model.Move;
+import com.mesozoic.arena.model.Player;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTest {
+
+    private static GameState createState() {
+        Move strike = new Move("Strike", 10, 0, List.of());
+        Dinosaur one = new Dinosaur("One", 100, 50, "assets/animals/allosaurus.png",
+                1, 1, List.of(strike), null);
+        Dinosaur two = new Dinosaur("Two", 100, 40, "assets/animals/allosaurus.png",
+                1, 1, List.of(strike), null);
+        return new GameState(new Player(List.of(one)), new Player(List.of(two)));
+    }
+
+    @Test
+    public void testNodesWithSamePositionShareStatistics() {
+        TranspositionTable table = new TranspositionTable(1 << 16,
+                TranspositionTable.Replacement.LEAST_VISITED);
+        GameState state = createState();
+        MCTSNode first = new MCTSNode(state, null, null, 0.0, 0.0, table);
+        MCTSNode second = new MCTSNode(state.copy(), null, null, 0.0, 0.0, table);
+
+        first.backpropagate(1.0);
+
+        assertEquals(0, second.getVisitCount());
+        assertEquals(1, second.getPositionVisitCount());
+        assertEquals(1.0, second.getPositionWinScore());
+        assertEquals(1, table.getHits());
+        assertEquals(1, table.getMisses());
+        assertEquals(0.5, table.getHitRate());
+    }
+
+    @Test
+    public void testDifferentRoundsDoNotShareStatistics() {
+        TranspositionTable table = new TranspositionTable(1 << 16,
+                TranspositionTable.Replacement.LEAST_VISITED);
+        GameState state = createState();
+        MCTSNode root = new MCTSNode(state, null, null, 0.0, 0.0, table);
+        Move wait = new Move("Wait", 0, 0, List.of());
+        GameState next = state.nextState(wait, wait, new Random(0));
+        MCTSNode later = new MCTSNode(next, root, null, 0.0, 0.0, table);
+
+        assertEquals(state.hash(), next.hash());
+        later.backpropagate(1.0);
+        assertEquals(1, later.getPositionVisitCount());
+        assertEquals(1, root.getPositionVisitCount());
+        assertEquals(0, table.getHits());
+    }
+
+    @Test
+    public void testBraceFlagsSeparatePositions() {
+        TranspositionTable table = new TranspositionTable(1 << 16,
+                TranspositionTable.Replacement.LEAST_VISITED);
+        Move brace = new Move("Brace", 0, 0, List.of(new Effect("brace")));
+        Move wait = new Move("Wait", 0, 0, List.of());
+        GameState state = new GameState(
+                new Player(List.of(new Dinosaur("One", 100, 50, "assets/animals/allosaurus.png",
+                        1, 1, List.of(brace, wait), null))),
+                new Player(List.of(new Dinosaur("Two", 100, 40, "assets/animals/allosaurus.png",
+                        1, 1, List.of(wait), null))));
+        GameState braced = state.nextState(brace, wait, new Random(0));
+        GameState waited = state.nextState(wait, wait, new Random(0));
+        assertEquals(braced.hash(), waited.hash());
+
+        MCTSNode first = new MCTSNode(braced, null, null, 0.0, 0.0, table);
+        MCTSNode second = new MCTSNode(waited, null, null, 0.0, 0.0, table);
+        first.backpropagate(1.0);
+
+        assertEquals(0, second.getPositionVisitCount());
+        assertEquals(0, table.getHits());
+    }
+
+    @Test
+    public void testLeastVisitedEntryIsEvicted() {
+        TranspositionTable table = new TranspositionTable(0,
+                TranspositionTable.Replacement.LEAST_VISITED);
+        assertEquals(2, table.getCapacity());
+        GameState state = createState();
+        Random random = new Random(0);
+        Move strike = state.getPlayerOne().getActiveDinosaur().getMove(0);
+        MCTSNode visited = new MCTSNode(state, null, null, 0.0, 0.0, table);
+        visited.backpropagate(1.0);
+        GameState second = state.nextState(strike, strike, random);
+        new MCTSNode(second, null, null, 0.0, 0.0, table);
+        GameState third = second.nextState(strike, strike, random);
+        new MCTSNode(third, null, null, 0.0, 0.0, table);
+
+        assertEquals(1, table.getEvictions());
+        MCTSNode again = new MCTSNode(state.copy(), null, null, 0.0, 0.0, table);
+        assertEquals(1, again.getPositionVisitCount());
+
+        table.clear();
+        assertEquals(0, table.getHits());
+        assertEquals(0, new MCTSNode(state.copy(), null, null, 0.0, 0.0, table).getPositionVisitCount());
+    }
+
+    @Test
+    public void testConcurrentInsertsOfOneKeyShareStatistics() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 100; round++) {
+                TranspositionTable table = new TranspositionTable(1 << 16,
+                        TranspositionTable.Replacement.LEAST_VISITED);
+                GameState state = createState();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<MCTSNode>> nodes = new ArrayList<>();
+                for (int thread = 0; thread < threads; thread++) {
+                    GameState copy = state.copy();
+                    nodes.add(executor.submit(() -> {
+                        start.await();
+                        return new MCTSNode(copy, null, null, 0.0, 0.0, table);
+                    }));
+                }
+                start.countDown();
+                for (Future<MCTSNode> node : nodes) {
+                    node.get().backpropagate(1.0);
+                }
+
+                for (Future<MCTSNode> node : nodes) {
+                    assertEquals(threads, node.get().getPositionVisitCount(), "round " + round);
+                }
+                assertEquals(threads, table.getHits() + table.getMisses());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFullTableStaysWithinItsMemoryCap() throws Exception {
+        Field entryBytes = TranspositionTable.class.getDeclaredField("ENTRY_BYTES");
+        entryBytes.setAccessible(true);
+        long maxBytes = (long) entryBytes.getInt(null) << 17;
+        Method statisticsFor = TranspositionTable.class.getDeclaredMethod("statisticsFor", long.class);
+        statisticsFor.setAccessible(true);
+
+        long before = usedHeap();
+        TranspositionTable table = new TranspositionTable(maxBytes,
+                TranspositionTable.Replacement.LEAST_VISITED);
+        for (long bucket = 0; bucket < table.getCapacity() / 2; bucket++) {
+            statisticsFor.invoke(table, bucket);
+            statisticsFor.invoke(table, (bucket ^ 1) | (1L << 32));
+        }
+        long retained = usedHeap() - before;
+
+        assertEquals(table.getCapacity(), table.getMisses());
+        assertEquals(0, table.getEvictions());
+        assertTrue(retained <= maxBytes, retained + " bytes retained for a cap of " + maxBytes);
+        Reference.reachabilityFence(table);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int pass = 0; pass < 3; pass++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
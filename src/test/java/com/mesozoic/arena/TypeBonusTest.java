@@ -48,4 +48,19 @@ public class TypeBonusTest {
         battle.executeRound(charge, waitMove);
         assertEquals(90, defender.getHealth());
     }
+
+    @Test
+    public void testDualTypeDefensiveTable() {
+        Dinosaur dual = new Dinosaur("Dual", 100, 50,
+                "assets/animals/allosaurus.png", 1, 1, List.of(), null,
+                List.of(DinoType.GRAZER, DinoType.DEFENDER));
+
+        assertEquals(4.0, dual.getMultiplierFrom(DinoType.CRUSHER));
+        assertEquals(1.0, dual.getMultiplierFrom(DinoType.BITER));
+        assertEquals(0.25, dual.getMultiplierFrom(DinoType.GRAZER));
+        assertEquals(1.0, dual.getMultiplierFrom(null));
+        assertEquals(DinoType.GRAZER.mask() | DinoType.DEFENDER.mask(), dual.getTypeMask());
+        assertTrue(dual.hasType(DinoType.DEFENDER));
+        assertFalse(dual.hasType(DinoType.BITER));
+    }
 }